@@ -0,0 +1,22 @@
+package com.TestingTutorials.springboottesting.Data.Dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * A Slice-style page for keyset pagination. There is no total count on purpose,
+ * hasNext is worked out by fetching one extra row, so no COUNT query is ever issued.
+ * Pass nextCursor back as the cursor param to get the following page.
+ **/
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> content;
+
+    private String nextCursor;
+
+    private boolean hasNext;
+}
@@ -0,0 +1,20 @@
+package com.TestingTutorials.springboottesting.Data.Dtos;
+
+import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Result of a multi-get. Employees come back in the order their ids were asked for,
+ * ids with no employee behind them are listed in missingIds instead of failing the request.
+ **/
+@Getter
+@AllArgsConstructor
+public class EmployeeLookup {
+
+    private List<Employee> employees;
+
+    private List<Long> missingIds;
+}
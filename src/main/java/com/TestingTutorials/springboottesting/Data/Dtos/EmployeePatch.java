@@ -0,0 +1,28 @@
+package com.TestingTutorials.springboottesting.Data.Dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Body of a PATCH request. Only the fields that are set are written, a null field is left as it is.
+ **/
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmployeePatch {
+
+    private String firstName;
+
+    private String lastName;
+
+    private String email;
+
+    public boolean isEmpty() {
+        return firstName == null && lastName == null && email == null;
+    }
+}
@@ -0,0 +1,18 @@
+package com.TestingTutorials.springboottesting.Data.Dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Id and display name only, for lists that don't need the whole employee.
+ * Built by a JPQL constructor expression, so hibernate never creates an entity, a snapshot or a
+ * persistence context entry for it.
+ **/
+@Getter
+@AllArgsConstructor
+public class EmployeeSummary {
+
+    private Long employeeId;
+
+    private String displayName;
+}
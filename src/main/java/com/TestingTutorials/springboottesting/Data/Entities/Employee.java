@@ -1,6 +1,9 @@
 package com.TestingTutorials.springboottesting.Data.Entities;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import javax.persistence.*;
 
@@ -10,10 +13,22 @@ import javax.persistence.*;
 @NoArgsConstructor
 @Builder
 @Entity
-@Table(name="employees")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Employee.CACHE_REGION)
+@Table(name="employees", uniqueConstraints = @UniqueConstraint(name = Employee.EMAIL_UNIQUE_CONSTRAINT, columnNames = "email"))
 public class Employee {
+
+    public static final String EMAIL_UNIQUE_CONSTRAINT = "uk_employees_email";
+
+    // Second-level cache regions, only used when the l2cache profile is active
+    public static final String CACHE_REGION = "employee";
+
+    public static final String QUERY_CACHE_REGION = "employee-queries";
+
+    // IDENTITY would force an insert per entity, a pooled sequence lets hibernate batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employees_seq")
+    @SequenceGenerator(name = "employees_seq", sequenceName = "employees_seq", allocationSize = 50)
     private Long employeeId;
 
     @Column(name = "first_name", nullable = false)
@@ -24,4 +39,11 @@ public class Employee {
 
     @Column(nullable = false)
     private String email;
+
+    // Bumped by hibernate on every update, doubles as the strong ETag for the employee.
+    // The column and its default come from the V1 migration, ddl-auto only validates against it
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
 }
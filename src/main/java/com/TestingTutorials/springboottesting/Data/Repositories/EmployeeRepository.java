@@ -1,17 +1,36 @@
 package com.TestingTutorials.springboottesting.Data.Repositories;
 
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeeSummary;
 import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface EmployeeRepository extends JpaRepository<Employee, Long> {
+// Query methods run in read-only transactions like the inherited finders do, which routes them to a replica
+// when replica routing is on. Writes declare their own @Transactional
+@Transactional(readOnly = true)
+public interface EmployeeRepository extends JpaRepository<Employee, Long>, EmployeeRepositoryCustom {
 
     // Custom queries using Query Method Approach in spring Data JPA
+    // Both are cacheable in the query cache, the hints are ignored unless the l2cache profile turns it on
+    @QueryHints({@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHE_REGION, value = Employee.QUERY_CACHE_REGION)})
     Optional<Employee> findByEmail(String email);
 
+    @QueryHints({@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHE_REGION, value = Employee.QUERY_CACHE_REGION)})
     Optional<Employee> findByFirstName(String firstName);
 
     // Custom Query using JPQL with index params ==> Java persistence query language
@@ -30,5 +49,34 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
     @Query(value = "select * from employees e where e.first_name = :first_name and e.last_name = :last_name", nativeQuery = true)
     Employee findByNativeSQLWithNamedParams (@Param("first_name") String firstName, @Param("last_name") String email);
 
+    // Keyset pagination: seeks past the last seen id instead of using OFFSET. Returning a Slice
+    // makes spring data fetch one extra row to work out hasNext rather than running a COUNT query
+    Slice<Employee> findByEmployeeIdGreaterThan(Long employeeId, Pageable pageable);
+
+    // Keyset page of summaries, only the three columns it needs are selected and no entities are hydrated.
+    // The ordering is part of the query, pass an unsorted Pageable
+    @Query("select new com.TestingTutorials.springboottesting.Data.Dtos.EmployeeSummary(e.employeeId, concat(e.firstName, ' ', e.lastName)) "
+            + "from Employee e where e.employeeId > :employeeId order by e.employeeId")
+    Slice<EmployeeSummary> findSummariesAfter(@Param("employeeId") Long employeeId, Pageable pageable);
+
+    // Newest ids first, the startup warm-up preloads these since recently created employees are read the most
+    @Query("select e.employeeId from Employee e order by e.employeeId desc")
+    List<Long> findRecentEmployeeIds(Pageable pageable);
+
+    // One IN query for a whole batch of emails, returning only the ones already taken
+    @Query("select e.email from Employee e where e.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    // Only the email column, read through a cursor to fill the email Bloom filter at startup
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select e.email from Employee e")
+    Stream<String> streamAllEmails();
+
+    // One set-based DELETE for many ids. Unlike deleteById/deleteAllById nothing is loaded first,
+    // so no persistence context, cascades or entity listeners are involved, callers handle cache eviction
+    @Modifying
+    @Transactional
+    @Query("delete from Employee e where e.employeeId in :employeeIds")
+    int deleteByEmployeeIds(@Param("employeeIds") Collection<Long> employeeIds);
 
 }
@@ -0,0 +1,24 @@
+package com.TestingTutorials.springboottesting.Data.Repositories;
+
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeePatch;
+import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Repository fragment for queries that need the EntityManager directly, spring data wires the Impl class in by name
+public interface EmployeeRepositoryCustom {
+
+    // Must be consumed inside a transaction and closed afterwards, the stream holds an open server-side cursor
+    Stream<Employee> streamAll(int fetchSize);
+
+    // Single UPDATE of the supplied fields guarded by the version, returns the row count (0 when the id or version is stale)
+    int patch(Long employeeId, Long expectedVersion, EmployeePatch patch);
+
+    // Sparse fieldsets: only the named attributes are selected, each row comes back as attribute name -> value
+    List<Map<String, Object>> findFieldsAfter(List<String> fields, Long employeeId, int limit);
+
+    Optional<Map<String, Object>> findFieldsById(List<String> fields, Long employeeId);
+}
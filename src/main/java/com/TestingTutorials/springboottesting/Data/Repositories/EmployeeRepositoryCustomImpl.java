@@ -0,0 +1,113 @@
+package com.TestingTutorials.springboottesting.Data.Repositories;
+
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeePatch;
+import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TupleElement;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class EmployeeRepositoryCustomImpl implements EmployeeRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<Employee> streamAll(int fetchSize) {
+        // The fetch size makes the postgres driver use a cursor instead of buffering the whole result set,
+        // and detaching every row as it goes past keeps the persistence context from growing with the table
+        return entityManager.createQuery("select e from Employee e order by e.employeeId", Employee.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream()
+                .peek(entityManager::detach);
+    }
+
+    @Override
+    @Transactional
+    public int patch(Long employeeId, Long expectedVersion, EmployeePatch patch) {
+        // No read first, the version in the WHERE clause does the optimistic check in the same statement
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Employee> update = criteriaBuilder.createCriteriaUpdate(Employee.class);
+        Root<Employee> employee = update.from(Employee.class);
+
+        if (patch.getFirstName() != null) {
+            update.set(employee.<String>get("firstName"), patch.getFirstName());
+        }
+        if (patch.getLastName() != null) {
+            update.set(employee.<String>get("lastName"), patch.getLastName());
+        }
+        if (patch.getEmail() != null) {
+            update.set(employee.<String>get("email"), patch.getEmail());
+        }
+        update.set(employee.<Long>get("version"), expectedVersion + 1)
+                .where(criteriaBuilder.equal(employee.get("employeeId"), employeeId),
+                        criteriaBuilder.equal(employee.get("version"), expectedVersion));
+
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    public List<Map<String, Object>> findFieldsAfter(List<String> fields, Long employeeId, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<Employee> employee = query.from(Employee.class);
+
+        query.multiselect(selection(fields, employee))
+                .where(criteriaBuilder.greaterThan(employee.get("employeeId"), employeeId))
+                .orderBy(criteriaBuilder.asc(employee.get("employeeId")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(EmployeeRepositoryCustomImpl::toMap)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findFieldsById(List<String> fields, Long employeeId) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<Employee> employee = query.from(Employee.class);
+
+        query.multiselect(selection(fields, employee))
+                .where(criteriaBuilder.equal(employee.get("employeeId"), employeeId));
+
+        // A list, not a stream: outside a transaction the shared EntityManager closes as soon as the query returns
+        return entityManager.createQuery(query)
+                .getResultList()
+                .stream()
+                .findFirst()
+                .map(EmployeeRepositoryCustomImpl::toMap);
+    }
+
+    // A tuple query selects exactly these columns, hibernate builds no entity and keeps no snapshot for the rows
+    private static List<Selection<?>> selection(List<String> fields, Root<Employee> employee) {
+        return fields.stream()
+                .map(field -> employee.get(field).alias(field))
+                .collect(Collectors.toList());
+    }
+
+    private static Map<String, Object> toMap(Tuple tuple) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (TupleElement<?> element : tuple.getElements()) {
+            row.put(element.getAlias(), tuple.get(element));
+        }
+        return row;
+    }
+}
@@ -0,0 +1,220 @@
+package com.TestingTutorials.springboottesting.Data.Repositories;
+
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeePatch;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeeSummary;
+import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking access to the employees table for the reactive profile, written against the R2DBC DatabaseClient.
+ * The SQL is spelled out rather than going through a spring data R2DBC repository so Employee stays a plain JPA
+ * entity, the schema comes from the Flyway migrations and this class only reads and writes rows.
+ **/
+@Repository
+@Profile("reactive")
+public class ReactiveEmployeeRepository {
+
+    private static final String COLUMNS = "employee_id, first_name, last_name, email, version";
+
+    // Employee attribute -> column, the names FieldSelection accepts
+    private static final Map<String, String> FIELD_COLUMNS = Map.of(
+            "employeeId", "employee_id",
+            "firstName", "first_name",
+            "lastName", "last_name",
+            "email", "email",
+            "version", "version");
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveEmployeeRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    // Rows are pulled from the server in fetchSize chunks as the subscriber asks for them, so a slow client
+    // holds back the query instead of the result piling up in memory
+    public Flux<Employee> findAll(int limit, int fetchSize) {
+        return databaseClient.sql("select " + COLUMNS + " from employees order by employee_id limit :limit")
+                .bind("limit", limit)
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .all();
+    }
+
+    public Flux<Employee> streamAll(int fetchSize) {
+        return databaseClient.sql("select " + COLUMNS + " from employees order by employee_id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .all();
+    }
+
+    // Keyset paging, the caller asks for one row more than the page to learn whether another follows
+    public Flux<Employee> findAfter(long employeeId, int limit) {
+        return databaseClient.sql("select " + COLUMNS + " from employees where employee_id > :employeeId "
+                        + "order by employee_id limit :limit")
+                .bind("employeeId", employeeId)
+                .bind("limit", limit)
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .all();
+    }
+
+    public Flux<EmployeeSummary> findSummariesAfter(long employeeId, int limit) {
+        return databaseClient.sql("select employee_id, first_name || ' ' || last_name as display_name from employees "
+                        + "where employee_id > :employeeId order by employee_id limit :limit")
+                .bind("employeeId", employeeId)
+                .bind("limit", limit)
+                .map(row -> new EmployeeSummary(row.get("employee_id", Long.class), row.get("display_name", String.class)))
+                .all();
+    }
+
+    // fields come from FieldSelection, so only known attribute names ever reach the SQL
+    public Flux<Map<String, Object>> findFieldsAfter(List<String> fields, long employeeId, int limit) {
+        return databaseClient.sql("select " + selection(fields) + " from employees where employee_id > :employeeId "
+                        + "order by employee_id limit :limit")
+                .bind("employeeId", employeeId)
+                .bind("limit", limit)
+                .map(row -> toMap(fields, row))
+                .all();
+    }
+
+    public Mono<Map<String, Object>> findFieldsById(List<String> fields, long employeeId) {
+        return databaseClient.sql("select " + selection(fields) + " from employees where employee_id = :employeeId")
+                .bind("employeeId", employeeId)
+                .map(row -> toMap(fields, row))
+                .one();
+    }
+
+    public Flux<Employee> findAllById(Collection<Long> employeeIds) {
+        return databaseClient.sql("select " + COLUMNS + " from employees where employee_id in (:employeeIds)")
+                .bind("employeeIds", employeeIds)
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .all();
+    }
+
+    public Flux<String> findExistingEmails(Collection<String> emails) {
+        return databaseClient.sql("select email from employees where email in (:emails)")
+                .bind("emails", emails)
+                .map(row -> row.get("email", String.class))
+                .all();
+    }
+
+    public Mono<Boolean> existsById(long employeeId) {
+        return databaseClient.sql("select 1 from employees where employee_id = :employeeId")
+                .bind("employeeId", employeeId)
+                .map(row -> true)
+                .first()
+                .defaultIfEmpty(false);
+    }
+
+    public Mono<Employee> findById(long employeeId) {
+        return databaseClient.sql("select " + COLUMNS + " from employees where employee_id = :employeeId")
+                .bind("employeeId", employeeId)
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .one();
+    }
+
+    // Takes its id straight from the sequence. Hibernate's pooled-lo optimizer treats each nextval as the start of
+    // its own block of 50, so a value drawn here can never collide with ids handed out by the blocking stack
+    public Mono<Employee> insert(Employee employee) {
+        return databaseClient.sql("insert into employees (" + COLUMNS + ") "
+                        + "values (nextval('employees_seq'), :firstName, :lastName, :email, 0) returning " + COLUMNS)
+                .bind("firstName", employee.getFirstName())
+                .bind("lastName", employee.getLastName())
+                .bind("email", employee.getEmail())
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .one();
+    }
+
+    // Empty when the row is no longer at expectedVersion (or gone), the same check @Version does on the blocking stack
+    public Mono<Employee> update(long employeeId, long expectedVersion, Employee employee) {
+        return databaseClient.sql("update employees set first_name = :firstName, last_name = :lastName, "
+                        + "email = :email, version = :newVersion "
+                        + "where employee_id = :employeeId and version = :expectedVersion returning " + COLUMNS)
+                .bind("firstName", employee.getFirstName())
+                .bind("lastName", employee.getLastName())
+                .bind("email", employee.getEmail())
+                .bind("employeeId", employeeId)
+                .bind("expectedVersion", expectedVersion)
+                .bind("newVersion", expectedVersion + 1)
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .one();
+    }
+
+    // Writes only the supplied fields, the version in the WHERE clause does the optimistic check in the same statement
+    public Mono<Integer> patch(long employeeId, long expectedVersion, EmployeePatch patch) {
+        List<String> assignments = new ArrayList<>();
+        if (patch.getFirstName() != null) {
+            assignments.add("first_name = :firstName");
+        }
+        if (patch.getLastName() != null) {
+            assignments.add("last_name = :lastName");
+        }
+        if (patch.getEmail() != null) {
+            assignments.add("email = :email");
+        }
+        assignments.add("version = :newVersion");
+
+        DatabaseClient.GenericExecuteSpec update = databaseClient.sql("update employees set "
+                        + String.join(", ", assignments) + " where employee_id = :employeeId and version = :expectedVersion")
+                .bind("employeeId", employeeId)
+                .bind("expectedVersion", expectedVersion)
+                .bind("newVersion", expectedVersion + 1);
+        if (patch.getFirstName() != null) {
+            update = update.bind("firstName", patch.getFirstName());
+        }
+        if (patch.getLastName() != null) {
+            update = update.bind("lastName", patch.getLastName());
+        }
+        if (patch.getEmail() != null) {
+            update = update.bind("email", patch.getEmail());
+        }
+        return update.fetch().rowsUpdated();
+    }
+
+    public Mono<Integer> deleteByIds(Collection<Long> employeeIds) {
+        return databaseClient.sql("delete from employees where employee_id in (:employeeIds)")
+                .bind("employeeIds", employeeIds)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Integer> deleteById(long employeeId) {
+        return databaseClient.sql("delete from employees where employee_id = :employeeId")
+                .bind("employeeId", employeeId)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static String selection(List<String> fields) {
+        return fields.stream().map(FIELD_COLUMNS::get).collect(Collectors.joining(", "));
+    }
+
+    private static Map<String, Object> toMap(List<String> fields, Row row) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String field : fields) {
+            values.put(field, row.get(FIELD_COLUMNS.get(field)));
+        }
+        return values;
+    }
+
+    private static Employee toEmployee(Row row) {
+        return Employee.builder()
+                .employeeId(row.get("employee_id", Long.class))
+                .firstName(row.get("first_name", String.class))
+                .lastName(row.get("last_name", String.class))
+                .email(row.get("email", String.class))
+                .version(row.get("version", Long.class))
+                .build();
+    }
+}
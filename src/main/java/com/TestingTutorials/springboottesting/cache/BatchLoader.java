@@ -0,0 +1,181 @@
+package com.TestingTutorials.springboottesting.cache;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * DataLoader-style micro-batching. Single-key loads that arrive within one window are collected and resolved by
+ * one call of the batch function, which is dispatched when the window closes or as soon as maxBatchSize keys are
+ * waiting, whichever comes first. Callers block until their batch is done.
+ *
+ * The batch function runs on a caller's thread, never on the dispatcher: a full batch is run by the caller that
+ * filled it, otherwise by the first caller of the batch once the dispatcher has closed its window. A slow query
+ * therefore can't hold up the windows of other batches. close() stops the dispatcher.
+ *
+ * Published as {name}.size (keys per batch) and {name}.queue (time a key waited before its batch ran).
+ **/
+public class BatchLoader<K, V> implements AutoCloseable {
+
+    private final Function<List<K>, Map<K, V>> batchFunction;
+
+    private final long windowNanos;
+
+    private final int maxBatchSize;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final DistributionSummary batchSizes;
+
+    private final Timer queueLatency;
+
+    // Guarded by this
+    private Batch<K, V> pending = new Batch<>();
+
+    // Guarded by this
+    private boolean closed;
+
+    public BatchLoader(String name, Duration window, int maxBatchSize, Function<List<K>, Map<K, V>> batchFunction,
+                       MeterRegistry meterRegistry) {
+        this.batchFunction = batchFunction;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batchSizes = DistributionSummary.builder(name + ".size")
+                .description("Keys resolved per batch query")
+                .register(meterRegistry);
+        this.queueLatency = Timer.builder(name + ".queue")
+                .description("Time a key waited for its batch to be dispatched")
+                .register(meterRegistry);
+    }
+
+    public Optional<V> load(K key) {
+        PendingLoad<K, V> load = new PendingLoad<>(key, System.nanoTime());
+        Batch<K, V> batch;
+        boolean full = false;
+        boolean leader = false;
+
+        synchronized (this) {
+            if (closed) {
+                batch = new Batch<>();
+                batch.loads.add(load);
+                full = true;
+            } else {
+                batch = pending;
+                batch.loads.add(load);
+                if (batch.loads.size() >= maxBatchSize) {
+                    pending = new Batch<>();
+                    full = true;
+                } else if (batch.loads.size() == 1) {
+                    leader = true;
+                    scheduler.schedule(() -> closeWindow(batch), windowNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        // A full batch is run by the caller that filled it, that thread would only be waiting otherwise
+        if (full) {
+            dispatch(batch.loads);
+        } else if (leader) {
+            // Either the window closes and the leader runs the batch, or someone filled it and already ran it
+            CompletableFuture.anyOf(batch.windowClosed, load.result).join();
+            if (!load.result.isDone()) {
+                dispatch(batch.loads);
+            }
+        }
+        return await(load.result);
+    }
+
+    // Runs on the dispatcher, which only hands the batch to its leader. It may already have gone out because
+    // it filled up, then there is nothing left to do
+    private void closeWindow(Batch<K, V> batch) {
+        synchronized (this) {
+            if (pending != batch) {
+                return;
+            }
+            pending = new Batch<>();
+        }
+        batch.windowClosed.complete(null);
+    }
+
+    // Whatever is still waiting for its window goes out straight away, later loads run on their own
+    @Override
+    public void close() {
+        Batch<K, V> batch;
+        synchronized (this) {
+            closed = true;
+            batch = pending;
+            pending = new Batch<>();
+        }
+        scheduler.shutdownNow();
+        batch.windowClosed.complete(null);
+    }
+
+    private void dispatch(List<PendingLoad<K, V>> batch) {
+        long dispatchedAt = System.nanoTime();
+        batch.forEach(load -> queueLatency.record(dispatchedAt - load.enqueuedAt, TimeUnit.NANOSECONDS));
+
+        List<K> keys = batch.stream().map(load -> load.key).distinct().collect(Collectors.toList());
+        batchSizes.record(keys.size());
+
+        try {
+            Map<K, V> values = batchFunction.apply(keys);
+            batch.forEach(load -> load.result.complete(Optional.ofNullable(values.get(load.key))));
+        } catch (RuntimeException | Error e) {
+            batch.forEach(load -> load.result.completeExceptionally(e));
+        }
+    }
+
+    private Optional<V> await(CompletableFuture<Optional<V>> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class Batch<K, V> {
+
+        // Only added to while the batch is pending, read by whoever dispatches it afterwards
+        private final List<PendingLoad<K, V>> loads = new ArrayList<>();
+
+        private final CompletableFuture<Void> windowClosed = new CompletableFuture<>();
+    }
+
+    private static final class PendingLoad<K, V> {
+
+        private final K key;
+
+        private final long enqueuedAt;
+
+        private final CompletableFuture<Optional<V>> result = new CompletableFuture<>();
+
+        private PendingLoad(K key, long enqueuedAt) {
+            this.key = key;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
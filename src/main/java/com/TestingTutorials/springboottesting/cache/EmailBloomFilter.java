@@ -0,0 +1,180 @@
+package com.TestingTutorials.springboottesting.cache;
+
+import com.TestingTutorials.springboottesting.Data.Repositories.EmployeeRepository;
+import com.TestingTutorials.springboottesting.config.EmployeeProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * In-memory Bloom filter over every employee email, used to skip the existing-email query on create
+ * when none of the emails can possibly be taken.
+ *
+ * A Bloom filter can't forget an email, so deletes are not applied. That only raises the false-positive
+ * rate (a wasted query), it can never cause a miss for an email that exists. Until the filter has been
+ * loaded, or when it is disabled, it answers "maybe" for everything so callers always fall back to the database.
+ * The unique email constraint stays the final word either way.
+ **/
+@Component
+@Profile("!reactive")
+public class EmailBloomFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailBloomFilter.class);
+
+    private final EmployeeRepository employeeRepository;
+
+    private final boolean enabled;
+
+    private final int numBits;
+
+    private final int numHashes;
+
+    private final AtomicLongArray bits;
+
+    private final AtomicLong insertions = new AtomicLong();
+
+    private final Counter definiteMisses;
+
+    private final Counter possibleHits;
+
+    private volatile boolean loaded;
+
+    public EmailBloomFilter(EmployeeRepository employeeRepository, EmployeeProperties employeeProperties,
+                            MeterRegistry meterRegistry) {
+        this.employeeRepository = employeeRepository;
+
+        EmployeeProperties.EmailFilterProperties filter = employeeProperties.getEmailFilter();
+        this.enabled = filter.isEnabled();
+
+        // Standard sizing: m = -n ln(p) / ln(2)^2 bits and k = m/n ln(2) hash functions
+        long expected = Math.max(1, filter.getExpectedInsertions());
+        double fpp = filter.getFalsePositiveRate();
+        long optimalBits = (long) Math.ceil(-expected * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        this.numBits = (int) Math.min(Math.max(64, optimalBits), Integer.MAX_VALUE - 63);
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / expected * Math.log(2)));
+        this.bits = new AtomicLongArray(enabled ? (numBits + 63) / 64 : 0);
+
+        Gauge.builder("employees.email.filter.fpp", this, EmailBloomFilter::expectedFalsePositiveRate)
+                .description("Estimated false-positive rate of the email Bloom filter at its current fill")
+                .register(meterRegistry);
+        Gauge.builder("employees.email.filter.size", this, EmailBloomFilter::sizeInBytes)
+                .description("Memory held by the email Bloom filter bit array")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("employees.email.filter.insertions", insertions, AtomicLong::get)
+                .register(meterRegistry);
+        this.definiteMisses = Counter.builder("employees.email.filter.lookups").tag("result", "definite_miss")
+                .register(meterRegistry);
+        this.possibleHits = Counter.builder("employees.email.filter.lookups").tag("result", "maybe")
+                .register(meterRegistry);
+    }
+
+    // Streams every email once when the application starts
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        try (Stream<String> emails = employeeRepository.streamAllEmails()) {
+            emails.forEach(this::put);
+        }
+        loaded = true;
+        log.info("Email Bloom filter loaded with {} emails, {} bytes, estimated false-positive rate {}",
+                insertions.get(), sizeInBytes(), expectedFalsePositiveRate());
+    }
+
+    public void put(String email) {
+        if (!enabled || email == null) {
+            return;
+        }
+        long hash1 = hash(email);
+        long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            setBit(index(hash1 + i * hash2));
+        }
+        insertions.incrementAndGet();
+    }
+
+    // false means the email is definitely not in the table, true means it might be
+    public boolean mightContain(String email) {
+        if (!enabled || !loaded || email == null) {
+            return true;
+        }
+        long hash1 = hash(email);
+        long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            if (!getBit(index(hash1 + i * hash2))) {
+                definiteMisses.increment();
+                return false;
+            }
+        }
+        possibleHits.increment();
+        return true;
+    }
+
+    public double expectedFalsePositiveRate() {
+        if (!enabled) {
+            return 1.0;
+        }
+        long bitsSet = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            bitsSet += Long.bitCount(bits.get(i));
+        }
+        return Math.pow((double) bitsSet / numBits, numHashes);
+    }
+
+    public long sizeInBytes() {
+        return bits.length() * 8L;
+    }
+
+    private int index(long combinedHash) {
+        return (int) ((combinedHash & Long.MAX_VALUE) % numBits);
+    }
+
+    private void setBit(int index) {
+        long mask = 1L << index;
+        int word = index >>> 6;
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!bits.compareAndSet(word, current, current | mask));
+    }
+
+    private boolean getBit(int index) {
+        return (bits.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    // 64-bit FNV-1a over the characters, finished with a mixer so similar emails spread out
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,64 @@
+package com.TestingTutorials.springboottesting.cache;
+
+import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+import com.TestingTutorials.springboottesting.config.CacheConfig;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the "employees" read-through cache in step with writes. Runs after commit when there is a transaction,
+ * so a reader can't repopulate the entry from a row that is about to change.
+ *
+ * A read that started before an invalidation may still finish after it, so puts go through here with the stamp
+ * taken before the read and are dropped when an invalidation happened in between, the same way
+ * EmployeeResponseCache guards its puts.
+ **/
+@Component
+public class EmployeeCacheInvalidator {
+
+    private final CacheManager cacheManager;
+
+    // Bumped on every invalidation, before the entries are evicted
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public EmployeeCacheInvalidator(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    // Take the stamp before reading the employee, then pass it back to put()
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    public void put(Employee employee, long stamp) {
+        Cache employees = cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE);
+        if (employees == null || invalidations.get() != stamp) {
+            return;
+        }
+        employees.put(employee.getEmployeeId(), employee);
+        // An invalidation may have slipped in between the check and the put
+        if (invalidations.get() != stamp) {
+            employees.evict(employee.getEmployeeId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        invalidations.incrementAndGet();
+
+        Cache employees = cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE);
+        if (employees == null) {
+            return;
+        }
+
+        if (event.getType() == EmployeeChangedEvent.Type.INVALIDATE_ALL) {
+            employees.clear();
+        } else {
+            event.getEmployeeIds().forEach(employees::evict);
+        }
+    }
+}
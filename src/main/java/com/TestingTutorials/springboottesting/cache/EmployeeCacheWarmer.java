@@ -0,0 +1,195 @@
+package com.TestingTutorials.springboottesting.cache;
+
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeeLookup;
+import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+import com.TestingTutorials.springboottesting.Data.Repositories.EmployeeRepository;
+import com.TestingTutorials.springboottesting.config.EmployeeProperties;
+import com.TestingTutorials.springboottesting.services.EmployeeService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Startup warm-up so a fresh instance doesn't take its first traffic with cold caches, an empty Hibernate
+ * query plan cache and an unwarmed JIT. Spring Boot only reports readiness (ACCEPTING_TRAFFIC) once every
+ * ApplicationRunner has returned, so nothing more is needed to hold readiness back until this is done.
+ *
+ * There is no record of which employees are hot, the newest ones stand in for them. They are read in parallel
+ * through the service so they land in the employee cache, and serialized into the response cache. Then every
+ * repository query the service uses is run once and the main read paths are called in a loop.
+ * The whole run is bounded by the budget, when that runs out the instance simply starts with what it has.
+ **/
+@Component
+@Profile("!reactive")
+public class EmployeeCacheWarmer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeCacheWarmer.class);
+
+    // Matches nothing, the statement warm-up only needs the queries to run
+    private static final String UNKNOWN_EMAIL = "warmup@invalid";
+
+    private final EmployeeService employeeService;
+
+    private final EmployeeRepository employeeRepository;
+
+    private final EmployeeResponseCache responseCache;
+
+    private final ObjectProvider<EmployeeInvalidationBus> invalidationBus;
+
+    private final EmployeeProperties.WarmupProperties warmup;
+
+    private final int maxLookupSize;
+
+    private final Timer warmupTimer;
+
+    public EmployeeCacheWarmer(EmployeeService employeeService, EmployeeRepository employeeRepository,
+                               EmployeeResponseCache responseCache, ObjectProvider<EmployeeInvalidationBus> invalidationBus,
+                               EmployeeProperties employeeProperties, MeterRegistry meterRegistry) {
+        this.employeeService = employeeService;
+        this.employeeRepository = employeeRepository;
+        this.responseCache = responseCache;
+        this.invalidationBus = invalidationBus;
+        this.warmup = employeeProperties.getWarmup();
+        this.maxLookupSize = employeeProperties.getBatch().getMaxSize();
+        this.warmupTimer = Timer.builder("employees.warmup")
+                .description("Time the startup warm-up held back readiness")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!warmup.isEnabled()) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        long deadline = started + warmup.getBudget().toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, warmup.getParallelism()), daemonThreads());
+        try {
+            awaitInvalidationBus(deadline);
+            int preloaded = preload(executor, deadline);
+            prepareStatements(deadline);
+            exerciseReadPaths(deadline);
+            log.info("Warm-up finished in {} ms, {} employees preloaded",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), preloaded);
+        } catch (TimeoutException e) {
+            log.warn("Warm-up stopped after its budget of {}, starting partly cold", warmup.getBudget());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | ExecutionException e) {
+            // A failed warm-up only costs latency, it must never keep the instance from starting
+            log.warn("Warm-up failed, starting cold", e);
+        } finally {
+            executor.shutdownNow();
+            warmupTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // The bus flushes every cache when it first connects, anything preloaded before that would be thrown away
+    private void awaitInvalidationBus(long deadline) throws InterruptedException, TimeoutException {
+        EmployeeInvalidationBus bus = invalidationBus.getIfAvailable();
+        while (bus != null && !bus.isConnected()) {
+            checkDeadline(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private int preload(ExecutorService executor, long deadline)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        if (warmup.getPreloadCount() <= 0) {
+            return 0;
+        }
+        List<Long> employeeIds = employeeRepository.findRecentEmployeeIds(PageRequest.of(0, warmup.getPreloadCount()));
+        if (employeeIds.isEmpty()) {
+            return 0;
+        }
+
+        // One lookup per worker, split further when that would exceed the multi-get limit
+        int parallelism = Math.max(1, warmup.getParallelism());
+        int chunkSize = Math.min((employeeIds.size() + parallelism - 1) / parallelism, maxLookupSize);
+        AtomicInteger preloaded = new AtomicInteger();
+        List<Future<?>> chunks = new ArrayList<>();
+        for (int from = 0; from < employeeIds.size(); from += chunkSize) {
+            List<Long> chunk = employeeIds.subList(from, Math.min(from + chunkSize, employeeIds.size()));
+            chunks.add(executor.submit(() -> {
+                long stamp = responseCache.stamp();
+                EmployeeLookup lookup = employeeService.getEmployeesByIds(chunk);
+                for (Employee employee : lookup.getEmployees()) {
+                    responseCache.put(employee, stamp);
+                }
+                preloaded.addAndGet(lookup.getEmployees().size());
+            }));
+        }
+        for (Future<?> chunk : chunks) {
+            chunk.get(remaining(deadline), TimeUnit.NANOSECONDS);
+        }
+        return preloaded.get();
+    }
+
+    // Runs each query the service issues once, so Hibernate has parsed and cached its plan before real traffic
+    private void prepareStatements(long deadline) throws TimeoutException {
+        employeeRepository.findByEmail(UNKNOWN_EMAIL);
+        employeeRepository.findExistingEmails(List.of(UNKNOWN_EMAIL));
+        employeeRepository.findAllById(List.of(-1L));
+        checkDeadline(deadline);
+        employeeRepository.findByEmployeeIdGreaterThan(Long.MAX_VALUE, PageRequest.of(0, 1));
+        employeeRepository.findSummariesAfter(Long.MAX_VALUE, PageRequest.of(0, 1));
+        employeeRepository.findFieldsById(List.of("employeeId", "email"), -1L);
+        checkDeadline(deadline);
+    }
+
+    // The hot read paths, called often enough for the JIT to compile them. Single reads hit the cache by now
+    private void exerciseReadPaths(long deadline) throws TimeoutException {
+        List<Long> employeeIds = employeeRepository.findRecentEmployeeIds(PageRequest.of(0, 10));
+        for (int i = 0; i < warmup.getIterations(); i++) {
+            checkDeadline(deadline);
+            if (!employeeIds.isEmpty()) {
+                Long employeeId = employeeIds.get(i % employeeIds.size());
+                employeeService.getEmployeeByID(employeeId);
+                employeeService.getEmployeeFieldsByID(employeeId, "firstName,email");
+            }
+            if (i % 10 == 0) {
+                employeeService.getAllEmloyees();
+                employeeService.getEmployeesPage(null, null);
+                employeeService.getEmployeeSummariesPage(null, null);
+            }
+        }
+    }
+
+    private static void checkDeadline(long deadline) throws TimeoutException {
+        if (remaining(deadline) <= 0) {
+            throw new TimeoutException();
+        }
+    }
+
+    private static long remaining(long deadline) {
+        return deadline - System.nanoTime();
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "employees-warmup-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package com.TestingTutorials.springboottesting.cache;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published by the service layer whenever employees are written, so the caches in front of it
+ * can drop or refresh what they hold. INVALIDATE_ALL is for when the affected ids aren't known.
+ * Remote events were raised by another instance and arrived over the invalidation bus, they are applied
+ * locally but never sent out again.
+ **/
+@Getter
+public class EmployeeChangedEvent {
+
+    public enum Type { SAVED, DELETED, INVALIDATE_ALL }
+
+    private final Type type;
+
+    private final List<Long> employeeIds;
+
+    private final boolean remote;
+
+    private EmployeeChangedEvent(Type type, Collection<Long> employeeIds, boolean remote) {
+        this.type = type;
+        this.employeeIds = List.copyOf(employeeIds);
+        this.remote = remote;
+    }
+
+    public static EmployeeChangedEvent saved(Collection<Long> employeeIds) {
+        return new EmployeeChangedEvent(Type.SAVED, employeeIds, false);
+    }
+
+    public static EmployeeChangedEvent deleted(Collection<Long> employeeIds) {
+        return new EmployeeChangedEvent(Type.DELETED, employeeIds, false);
+    }
+
+    public static EmployeeChangedEvent invalidateAll() {
+        return new EmployeeChangedEvent(Type.INVALIDATE_ALL, List.of(), false);
+    }
+
+    public static EmployeeChangedEvent remote(Type type, Collection<Long> employeeIds) {
+        return new EmployeeChangedEvent(type, employeeIds, true);
+    }
+}
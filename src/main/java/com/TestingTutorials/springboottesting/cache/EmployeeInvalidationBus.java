@@ -0,0 +1,367 @@
+package com.TestingTutorials.springboottesting.cache;
+
+import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+import com.TestingTutorials.springboottesting.config.EmployeeProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Carries employee change events between instances over postgres LISTEN/NOTIFY, so every node can keep
+ * its caches in front of the service without serving another node's stale writes.
+ *
+ * Local events are sent with pg_notify on the writing transaction's own connection, postgres holds the
+ * notification back until that transaction commits and drops it on rollback. Incoming notifications are read
+ * on a dedicated connection outside the pool and re-published locally as remote events.
+ *
+ * Anything missed can't be replayed, so the local caches are flushed completely whenever that may have
+ * happened: after every (re)connect of the listening connection and whenever a sender's sequence has a hole
+ * that stays open for longer than the reorder window. Sequences are taken before commit and postgres delivers
+ * in commit order, so concurrent writers from one node routinely arrive slightly out of order.
+ * A notification is limited to 8000 bytes, changes touching more ids go out as INVALIDATE_ALL.
+ *
+ * Received changes also evict Hibernate's second-level and query caches, which only ever see local writes.
+ **/
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "employees.invalidation-bus", name = "enabled", havingValue = "true")
+public class EmployeeInvalidationBus implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeInvalidationBus.class);
+
+    // Stay clear of the 8000 byte limit on a NOTIFY payload
+    static final int MAX_PAYLOAD_LENGTH = 7900;
+
+    private static final long INITIAL_RECONNECT_DELAY_MILLIS = 500;
+
+    // A hole wider than this is not waited on, it is flushed straight away
+    private static final int MAX_TRACKED_MISSING = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DataSourceProperties dataSourceProperties;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final String channel;
+
+    private final Duration pollInterval;
+
+    private final long maxReconnectDelayMillis;
+
+    private final long reorderWindowNanos;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Highest sequence and still missing ones per sending node, only touched by the listener thread
+    private final Map<String, SenderSequence> senders = new HashMap<>();
+
+    private final Counter sent;
+
+    private final Counter received;
+
+    private final MeterRegistry meterRegistry;
+
+    private volatile boolean connected;
+
+    // A local change could not be sent, the listener tells every other node to flush instead
+    private volatile boolean flushPending;
+
+    private volatile boolean running;
+
+    private Thread listenerThread;
+
+    public EmployeeInvalidationBus(JdbcTemplate jdbcTemplate, DataSourceProperties dataSourceProperties,
+                                   EmployeeProperties employeeProperties, ApplicationEventPublisher eventPublisher,
+                                   EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.eventPublisher = eventPublisher;
+        this.entityManagerFactory = entityManagerFactory;
+
+        EmployeeProperties.InvalidationBusProperties busProperties = employeeProperties.getInvalidationBus();
+        // LISTEN takes an identifier, not a bind parameter, so the name is checked before it reaches SQL
+        if (!busProperties.getChannel().matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid invalidation bus channel: " + busProperties.getChannel());
+        }
+        this.channel = busProperties.getChannel();
+        this.pollInterval = busProperties.getPollInterval();
+        this.maxReconnectDelayMillis = busProperties.getMaxReconnectDelay().toMillis();
+        this.reorderWindowNanos = busProperties.getReorderWindow().toNanos();
+
+        this.meterRegistry = meterRegistry;
+        this.sent = Counter.builder("employees.invalidation.messages").tag("direction", "sent")
+                .register(meterRegistry);
+        this.received = Counter.builder("employees.invalidation.messages").tag("direction", "received")
+                .register(meterRegistry);
+        Gauge.builder("employees.invalidation.connected", this, bus -> bus.isConnected() ? 1 : 0)
+                .description("Whether the invalidation bus is currently listening")
+                .register(meterRegistry);
+    }
+
+    // Runs inside the writing transaction when there is one, otherwise straight away on its own connection
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        if (event.isRemote()) {
+            return;
+        }
+        try {
+            jdbcTemplate.query("select pg_notify(?, ?)", (ResultSetExtractor<Void>) resultSet -> null,
+                    channel, encode(event));
+            sent.increment();
+        } catch (DataAccessException e) {
+            // Inside a transaction the write goes down with its notification, there is nothing to tell anyone
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                throw e;
+            }
+            // Without one the change is already committed, it must not fail the request or skip the listeners
+            // after this one, the other nodes are flushed completely instead
+            log.warn("Could not send employee change notification, other instances will be flushed", e);
+            meterRegistry.counter("employees.invalidation.send.failures").increment();
+            flushPending = true;
+        }
+    }
+
+    String encode(EmployeeChangedEvent event) {
+        return encode(nodeId, sequence.incrementAndGet(), event);
+    }
+
+    // Shared with ReactiveEmployeeChanges, which sends in the same format from the reactive profile
+    static String encode(String nodeId, long sequence, EmployeeChangedEvent event) {
+        String prefix = nodeId + ":" + sequence + ":";
+        String ids = event.getEmployeeIds().stream().map(String::valueOf).collect(Collectors.joining(","));
+
+        if (event.getType() == EmployeeChangedEvent.Type.INVALIDATE_ALL
+                || prefix.length() + event.getType().name().length() + ids.length() + 1 > MAX_PAYLOAD_LENGTH) {
+            return prefix + EmployeeChangedEvent.Type.INVALIDATE_ALL.name() + ":";
+        }
+        return prefix + event.getType().name() + ":" + ids;
+    }
+
+    void handle(String payload) {
+        handle(payload, System.nanoTime());
+    }
+
+    // payload is node:sequence:type:id,id,...
+    void handle(String payload, long now) {
+        received.increment();
+
+        String[] parts = payload.split(":", 4);
+        EmployeeChangedEvent.Type type;
+        long messageSequence;
+        List<Long> employeeIds = new ArrayList<>();
+        try {
+            messageSequence = Long.parseLong(parts[1]);
+            type = EmployeeChangedEvent.Type.valueOf(parts[2]);
+            if (parts.length == 4 && !parts[3].isEmpty()) {
+                for (String id : parts[3].split(",")) {
+                    employeeIds.add(Long.valueOf(id));
+                }
+            }
+        } catch (RuntimeException e) {
+            flushAll("unreadable");
+            return;
+        }
+
+        String sender = parts[0];
+        if (nodeId.equals(sender)) {
+            return;
+        }
+
+        SenderSequence senderSequence = senders.get(sender);
+        if (senderSequence == null) {
+            senders.put(sender, new SenderSequence(messageSequence));
+        } else if (messageSequence > senderSequence.highest) {
+            if (messageSequence - senderSequence.highest > MAX_TRACKED_MISSING) {
+                senderSequence.highest = messageSequence;
+                senderSequence.missing.clear();
+                flushAll("gap");
+                return;
+            }
+            for (long skipped = senderSequence.highest + 1; skipped < messageSequence; skipped++) {
+                senderSequence.missing.put(skipped, now);
+            }
+            senderSequence.highest = messageSequence;
+        } else {
+            // Late or repeated, applying it again is harmless either way
+            senderSequence.missing.remove(messageSequence);
+        }
+
+        applyRemote(type, employeeIds);
+    }
+
+    // A hole that outlived the reorder window is taken as lost, the message on hand can't make up for it
+    void checkMissing(long now) {
+        boolean lost = false;
+        for (SenderSequence senderSequence : senders.values()) {
+            if (senderSequence.missing.values().stream().anyMatch(since -> now - since >= reorderWindowNanos)) {
+                senderSequence.missing.clear();
+                lost = true;
+            }
+        }
+        if (lost) {
+            flushAll("gap");
+        }
+    }
+
+    private void flushAll(String reason) {
+        meterRegistry.counter("employees.invalidation.flushes", "reason", reason).increment();
+        applyRemote(EmployeeChangedEvent.Type.INVALIDATE_ALL, List.of());
+    }
+
+    private void applyRemote(EmployeeChangedEvent.Type type, List<Long> employeeIds) {
+        Cache secondLevelCache = entityManagerFactory.getCache();
+        if (type == EmployeeChangedEvent.Type.INVALIDATE_ALL) {
+            secondLevelCache.evict(Employee.class);
+        } else {
+            employeeIds.forEach(employeeId -> secondLevelCache.evict(Employee.class, employeeId));
+        }
+        // Query results are only invalidated by local writes to the table, any remote change may affect them
+        secondLevelCache.unwrap(org.hibernate.Cache.class).evictQueryRegions();
+
+        eventPublisher.publishEvent(EmployeeChangedEvent.remote(type, employeeIds));
+    }
+
+    // Sent on the listening connection, which autocommits, so it doesn't depend on the pool that just failed
+    private void sendPendingFlush(Connection connection) throws SQLException {
+        if (!flushPending) {
+            return;
+        }
+        flushPending = false;
+        try (PreparedStatement statement = connection.prepareStatement("select pg_notify(?, ?)")) {
+            statement.setString(1, channel);
+            statement.setString(2, encode(EmployeeChangedEvent.invalidateAll()));
+            statement.execute();
+        } catch (SQLException e) {
+            flushPending = true;
+            throw e;
+        }
+        sent.increment();
+    }
+
+    private void listen() {
+        long reconnectDelay = INITIAL_RECONNECT_DELAY_MILLIS;
+
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+                // Nothing sent before LISTEN reached this node, so whatever is cached may already be stale.
+                // Connected is only reported once that flush is done, anything cached from then on is safe
+                reconnectDelay = INITIAL_RECONNECT_DELAY_MILLIS;
+                senders.clear();
+                flushAll("reconnect");
+                connected = true;
+
+                while (running) {
+                    sendPendingFlush(connection);
+                    PGNotification[] notifications = pgConnection.getNotifications((int) pollInterval.toMillis());
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+                    checkMissing(System.nanoTime());
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    break;
+                }
+                log.warn("Invalidation bus lost its connection, retrying in {} ms", reconnectDelay, e);
+            } finally {
+                connected = false;
+            }
+
+            try {
+                Thread.sleep(reconnectDelay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            reconnectDelay = Math.min(reconnectDelay * 2, maxReconnectDelayMillis);
+        }
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        listenerThread = new Thread(this::listen, "employees-invalidation-bus");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    // The listener notices within one poll interval and closes its connection on the way out
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+            listenerThread = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private static final class SenderSequence {
+
+        private long highest;
+
+        // Skipped sequence -> when it was first found missing
+        private final Map<Long, Long> missing = new HashMap<>();
+
+        private SenderSequence(long highest) {
+            this.highest = highest;
+        }
+    }
+}
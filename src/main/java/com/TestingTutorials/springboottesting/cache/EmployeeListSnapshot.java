@@ -0,0 +1,418 @@
+package com.TestingTutorials.springboottesting.cache;
+
+import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+import com.TestingTutorials.springboottesting.Data.Repositories.EmployeeRepository;
+import com.TestingTutorials.springboottesting.config.EmployeeProperties;
+import com.TestingTutorials.springboottesting.utils.CursorCodec;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The whole employee table held in memory as an immutable, id-ordered snapshot for getAllEmloyees, together with
+ * the JSON body of the list response. Readers just take the current snapshot, they only wait when there is none
+ * yet and one is being loaded, never on a write.
+ *
+ * Writes don't rebuild it from the database. The after-commit listener only queues the change, a single patcher
+ * thread reads the changed ids back, patches them into a copy of the snapshot and swaps the copy in. That still
+ * costs O(n) per write for the copy and the rebuilt body, but it is off the writing request's thread and changes
+ * that queue up meanwhile share one patch. The list may therefore trail a commit by the time of one patch.
+ * Database reads and the rebuild happen outside the lock, the lock is only taken to swap. Patches run one at a
+ * time, so a later commit can never be overwritten by an earlier one, and a load that raced a change isn't kept.
+ * INVALIDATE_ALL (and a bus reconnect or gap) drops the snapshot, the next read loads it again.
+ * Every snapshot gets the next generation, the list ETag is built from that rather than from the table version,
+ * whose listener may not have run yet when a patch is made.
+ *
+ * Meant for mid-sized tables. Holding more than employees.snapshot.max-size employees is refused, reads then go
+ * to the database as before. Deletes and full invalidations re-check the size with a bounded count, the snapshot
+ * is only tried again once the table fits.
+ **/
+@Component
+@Profile("!reactive")
+public class EmployeeListSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeListSnapshot.class);
+
+    private final EmployeeRepository employeeRepository;
+
+    private final ObjectWriter employeeWriter;
+
+    private final TransactionTemplate readTransaction;
+
+    private final boolean enabled;
+
+    private final int maxSize;
+
+    private final int maxRows;
+
+    private final Counter patches;
+
+    private final Counter loads;
+
+    // Runs the patches, must run them one at a time
+    private final Executor patcher;
+
+    private final Queue<EmployeeChangedEvent> pendingChanges = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean patchScheduled = new AtomicBoolean();
+
+    // Bumped by every change before it is queued, a load that saw another value doesn't keep its result
+    private final AtomicLong changes = new AtomicLong();
+
+    // Only one reader loads, the others wait for its result instead of loading the table too
+    private final Object loadLock = new Object();
+
+    // Swapped under this
+    private volatile Snapshot current;
+
+    // Picked at startup so versions from before a restart never match
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    private final AtomicLong generation = new AtomicLong();
+
+    // Set when the table was too large to hold, cleared once a size check after deletes finds that it fits
+    private volatile boolean tooLarge;
+
+    @Autowired
+    public EmployeeListSnapshot(EmployeeRepository employeeRepository, ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager, EmployeeProperties employeeProperties,
+                                MeterRegistry meterRegistry) {
+        this(employeeRepository, objectMapper, transactionManager, employeeProperties, meterRegistry,
+                Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "employee-snapshot-patcher");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    EmployeeListSnapshot(EmployeeRepository employeeRepository, ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager, EmployeeProperties employeeProperties,
+                         MeterRegistry meterRegistry, Executor patcher) {
+        this.employeeRepository = employeeRepository;
+        this.employeeWriter = objectMapper.writerFor(Employee.class);
+        this.patcher = patcher;
+
+        // After commit the finished transaction's EntityManager is still bound and may hand back its own stale
+        // instances, so rows are read back in a transaction of their own. It is deliberately not read-only:
+        // with replica routing that would send it to a replica that may not have the commit yet. Full loads use
+        // it too, a snapshot built from a lagging replica would otherwise stay stale until the next invalidation
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = employeeProperties.getSnapshot().isEnabled();
+        this.maxSize = employeeProperties.getSnapshot().getMaxSize();
+        this.maxRows = employeeProperties.getList().getMaxRows();
+
+        this.patches = Counter.builder("employees.snapshot.updates").tag("kind", "patch").register(meterRegistry);
+        this.loads = Counter.builder("employees.snapshot.updates").tag("kind", "load").register(meterRegistry);
+        Gauge.builder("employees.snapshot.size", this, snapshot -> {
+                    Snapshot held = snapshot.current;
+                    return held == null ? 0 : held.rows.length;
+                })
+                .description("Employees held in the list snapshot")
+                .register(meterRegistry);
+    }
+
+    /**
+     * One immutable version of the list. Rows are sorted by id, each with its JSON already written,
+     * the list view and the body only cover the first employees.list.max-rows of them like the database query did.
+     * nextCursor is then set to continue on /page after the last one.
+     **/
+    public static final class Snapshot {
+
+        private final Row[] rows;
+
+        @Getter
+        private final List<Employee> employees;
+
+        @Getter
+        private final byte[] body;
+
+        // Unique to this snapshot, the list ETag is built from it
+        @Getter
+        private final String version;
+
+        // Null unless rows were left out of the list
+        @Getter
+        private final String nextCursor;
+
+        private Snapshot(Row[] rows, int maxRows, String version) {
+            this.rows = rows;
+            this.version = version;
+
+            int visible = Math.min(rows.length, maxRows);
+            Employee[] employees = new Employee[visible];
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            body.write('[');
+            for (int i = 0; i < visible; i++) {
+                employees[i] = rows[i].employee;
+                if (i > 0) {
+                    body.write(',');
+                }
+                body.writeBytes(rows[i].json);
+            }
+            body.write(']');
+
+            this.employees = Collections.unmodifiableList(Arrays.asList(employees));
+            this.body = body.toByteArray();
+            this.nextCursor = rows.length > visible
+                    ? CursorCodec.encode(rows[visible - 1].employee.getEmployeeId())
+                    : null;
+        }
+    }
+
+    private static final class Row {
+
+        private final Employee employee;
+
+        private final byte[] json;
+
+        private Row(Employee employee, byte[] json) {
+            this.employee = employee;
+            this.json = json;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Null when the snapshot is disabled or the table is too large to hold
+    public Snapshot get() {
+        if (!enabled || tooLarge) {
+            return null;
+        }
+        Snapshot snapshot = current;
+        return snapshot != null ? snapshot : load();
+    }
+
+    private Snapshot load() {
+        synchronized (loadLock) {
+            Snapshot snapshot = current;
+            if (snapshot != null || tooLarge) {
+                return snapshot;
+            }
+
+            long seen = changes.get();
+            List<Employee> employees = readTransaction.execute(status -> employeeRepository.findByEmployeeIdGreaterThan(
+                    0L, PageRequest.of(0, maxSize + 1, Sort.by("employeeId"))).getContent());
+            if (employees.size() > maxSize) {
+                synchronized (this) {
+                    // A delete that came in meanwhile may have found the patcher with nothing to re-check
+                    if (changes.get() == seen) {
+                        log.warn("Employee list snapshot disabled, the table holds more than {} employees", maxSize);
+                        tooLarge = true;
+                    }
+                }
+                return null;
+            }
+
+            Snapshot loaded = new Snapshot(employees.stream().map(this::row).toArray(Row[]::new), maxRows,
+                    nextVersion());
+            synchronized (this) {
+                // A change committed while loading may be missing from the rows, this reader still gets them
+                // but the next one loads again
+                if (changes.get() == seen && current == null) {
+                    current = loaded;
+                    loads.increment();
+                }
+            }
+            return loaded;
+        }
+    }
+
+    // Runs after commit, or straight away for writes that ran outside a transaction. Only queues the change,
+    // the patch runs on the patcher thread
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        changes.incrementAndGet();
+        if (event.getType() == EmployeeChangedEvent.Type.INVALIDATE_ALL) {
+            synchronized (this) {
+                current = null;
+            }
+        }
+        pendingChanges.add(event);
+        if (patchScheduled.compareAndSet(false, true)) {
+            try {
+                patcher.execute(this::applyPendingChanges);
+            } catch (RejectedExecutionException e) {
+                // Shutting down, nothing patches any more
+                synchronized (this) {
+                    current = null;
+                }
+            }
+        }
+    }
+
+    private void applyPendingChanges() {
+        // Cleared before draining, a change queued after this point schedules the next run
+        patchScheduled.set(false);
+        List<EmployeeChangedEvent> events = new ArrayList<>();
+        for (EmployeeChangedEvent event; (event = pendingChanges.poll()) != null; ) {
+            events.add(event);
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+
+        try {
+            applyChanges(events);
+        } catch (RuntimeException e) {
+            log.warn("Employee list snapshot patch failed, dropping the snapshot", e);
+            synchronized (this) {
+                current = null;
+            }
+        }
+    }
+
+    private void applyChanges(List<EmployeeChangedEvent> events) {
+        boolean invalidateAll = events.stream()
+                .anyMatch(event -> event.getType() == EmployeeChangedEvent.Type.INVALIDATE_ALL);
+        boolean deleted = events.stream().anyMatch(event -> event.getType() == EmployeeChangedEvent.Type.DELETED);
+        if (tooLarge) {
+            if (invalidateAll || deleted) {
+                recheckSize();
+            }
+            return;
+        }
+
+        Snapshot snapshot = current;
+        if (invalidateAll || snapshot == null) {
+            return;
+        }
+
+        Set<Long> changedIds = new TreeSet<>();
+        Set<Long> savedIds = new TreeSet<>();
+        for (EmployeeChangedEvent event : events) {
+            changedIds.addAll(event.getEmployeeIds());
+            if (event.getType() == EmployeeChangedEvent.Type.SAVED) {
+                savedIds.addAll(event.getEmployeeIds());
+            }
+        }
+
+        // Saved rows are read back since an event only carries ids, rows that are gone by now are removed
+        Map<Long, Employee> saved = savedIds.isEmpty() ? Map.of()
+                : readTransaction.execute(status -> employeeRepository.findAllById(savedIds).stream()
+                        .collect(Collectors.toMap(Employee::getEmployeeId, Function.identity())));
+
+        List<Row> rows = new ArrayList<>(Arrays.asList(snapshot.rows));
+        for (Long employeeId : changedIds) {
+            int index = indexOf(rows, employeeId);
+            Employee employee = saved.get(employeeId);
+            if (employee == null) {
+                if (index >= 0) {
+                    rows.remove(index);
+                }
+            } else if (index >= 0) {
+                rows.set(index, row(employee));
+            } else {
+                rows.add(-index - 1, row(employee));
+            }
+        }
+
+        if (rows.size() > maxSize) {
+            synchronized (this) {
+                log.warn("Employee list snapshot disabled, the table holds more than {} employees", maxSize);
+                current = null;
+                tooLarge = true;
+            }
+            return;
+        }
+        Snapshot patched = new Snapshot(rows.toArray(Row[]::new), maxRows, nextVersion());
+        synchronized (this) {
+            // Invalidated while patching, the next read loads a fresh one
+            if (current != snapshot) {
+                return;
+            }
+            current = patched;
+        }
+        patches.increment();
+    }
+
+    // Only asks whether a row exists past max-size, a bounded count over the primary key index instead of
+    // loading and serializing the table again while it is still too large
+    private void recheckSize() {
+        Boolean stillTooLarge = readTransaction.execute(status -> employeeRepository.findByEmployeeIdGreaterThan(0L,
+                PageRequest.of(maxSize, 1, Sort.by("employeeId"))).hasContent());
+        if (Boolean.FALSE.equals(stillTooLarge)) {
+            tooLarge = false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (patcher instanceof ExecutorService) {
+            ((ExecutorService) patcher).shutdownNow();
+        }
+    }
+
+    private String nextVersion() {
+        return epoch + "-" + generation.incrementAndGet();
+    }
+
+    // Binary search by id, a missing id gives -(insertion point) - 1 like Collections.binarySearch
+    private static int indexOf(List<Row> rows, Long employeeId) {
+        int low = 0;
+        int high = rows.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int comparison = rows.get(mid).employee.getEmployeeId().compareTo(employeeId);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private Row row(Employee employee) {
+        try {
+            return new Row(employee, employeeWriter.writeValueAsBytes(employee));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
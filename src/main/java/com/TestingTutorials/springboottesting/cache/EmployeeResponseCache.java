@@ -0,0 +1,100 @@
+package com.TestingTutorials.springboottesting.cache;
+
+import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+import com.TestingTutorials.springboottesting.config.EmployeeProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Already-serialized JSON for single employee reads, so a hot GET /api/employees/{id}
+ * is answered without touching the database or the object mapper.
+ * Bounded by total bytes rather than entries since payload sizes vary.
+ * Each entry carries the version it was serialized from so the ETag is known without reading the body.
+ **/
+@Component
+public class EmployeeResponseCache {
+
+    private final Cache<Long, CachedResponse> responses;
+
+    private final ObjectWriter employeeWriter;
+
+    // Bumped on every invalidation, lets put() refuse bytes that were built from data read before a write
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public EmployeeResponseCache(ObjectMapper objectMapper, EmployeeProperties employeeProperties,
+                                 MeterRegistry meterRegistry) {
+        EmployeeProperties.ResponseCacheProperties properties = employeeProperties.getResponseCache();
+
+        this.employeeWriter = objectMapper.writerFor(Employee.class);
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxBytes())
+                .weigher((Long employeeId, CachedResponse response) -> response.getBody().length)
+                .expireAfterWrite(properties.getTimeToLive())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "employeeResponses");
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static final class CachedResponse {
+
+        private final Long version;
+
+        private final byte[] body;
+    }
+
+    public CachedResponse get(Long employeeId) {
+        return responses.getIfPresent(employeeId);
+    }
+
+    // Take the stamp before reading the employee, then pass it back in here
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    public CachedResponse put(Employee employee, long stamp) {
+        CachedResponse response = new CachedResponse(employee.getVersion(), serialize(employee));
+
+        if (invalidations.get() == stamp) {
+            responses.put(employee.getEmployeeId(), response);
+            // An invalidation may have slipped in between the check and the put
+            if (invalidations.get() != stamp) {
+                responses.invalidate(employee.getEmployeeId());
+            }
+        }
+        return response;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        invalidations.incrementAndGet();
+
+        if (event.getType() == EmployeeChangedEvent.Type.INVALIDATE_ALL) {
+            responses.invalidateAll();
+        } else {
+            responses.invalidateAll(event.getEmployeeIds());
+        }
+    }
+
+    private byte[] serialize(Employee employee) {
+        try {
+            return employeeWriter.writeValueAsBytes(employee);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
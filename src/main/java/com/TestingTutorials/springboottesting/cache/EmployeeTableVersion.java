@@ -0,0 +1,30 @@
+package com.TestingTutorials.springboottesting.cache;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Modification counter for the employees table as a whole, bumped after every committed write.
+ * List endpoints turn it into an ETag so an unchanged collection is confirmed without running a query.
+ * The epoch is picked at startup, so tags handed out before a restart never match again.
+ **/
+@Component
+public class EmployeeTableVersion {
+
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    private final AtomicLong modifications = new AtomicLong();
+
+    // Read this before loading the list, a write that commits mid-query then yields a tag that is already stale
+    public String current() {
+        return epoch + "-" + modifications.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        modifications.incrementAndGet();
+    }
+}
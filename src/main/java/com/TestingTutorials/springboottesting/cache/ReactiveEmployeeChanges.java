@@ -0,0 +1,74 @@
+package com.TestingTutorials.springboottesting.cache;
+
+import com.TestingTutorials.springboottesting.config.EmployeeProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Change events for writes made on the reactive profile. Each write runs in an R2DBC transaction together with
+ * its pg_notify, in the format EmployeeInvalidationBus reads, so blocking instances on the same database drop
+ * the rows from their caches exactly as they do for each other's writes. Once committed the change is also
+ * published locally as an EmployeeChangedEvent.
+ **/
+@Component
+@Profile("reactive")
+public class ReactiveEmployeeChanges {
+
+    private final DatabaseClient databaseClient;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final boolean busEnabled;
+
+    private final String channel;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    public ReactiveEmployeeChanges(DatabaseClient databaseClient, TransactionalOperator transactionalOperator,
+                                   ApplicationEventPublisher eventPublisher, EmployeeProperties employeeProperties) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+        this.eventPublisher = eventPublisher;
+        this.busEnabled = employeeProperties.getInvalidationBus().isEnabled();
+        this.channel = employeeProperties.getInvalidationBus().getChannel();
+    }
+
+    // changeOf maps the write's result to what changed, null when nothing did (e.g. a delete that matched no row)
+    public <T> Mono<T> write(Mono<T> write, Function<T, EmployeeChangedEvent> changeOf) {
+        return write
+                .flatMap(result -> {
+                    Optional<EmployeeChangedEvent> change = Optional.ofNullable(changeOf.apply(result));
+                    return change.map(this::send).orElse(Mono.empty())
+                            .thenReturn(Tuples.of(result, change));
+                })
+                .as(transactionalOperator::transactional)
+                .doOnNext(written -> written.getT2().ifPresent(eventPublisher::publishEvent))
+                .map(Tuple2::getT1);
+    }
+
+    // Goes out on the transaction's connection, postgres holds it back until commit and drops it on rollback
+    private Mono<Void> send(EmployeeChangedEvent event) {
+        if (!busEnabled) {
+            return Mono.empty();
+        }
+        return databaseClient.sql("select pg_notify(:channel, :payload)")
+                .bind("channel", channel)
+                .bind("payload", EmployeeInvalidationBus.encode(nodeId, sequence.incrementAndGet(), event))
+                .then();
+    }
+}
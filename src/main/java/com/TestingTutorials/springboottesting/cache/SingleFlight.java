@@ -0,0 +1,95 @@
+package com.TestingTutorials.springboottesting.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent loads of the same key into one. The first caller runs the loader, everyone who asks for
+ * that key while it is running waits for the same result instead of sending their own query. Nothing is kept
+ * once the load finishes, caching stays the job of the caches in front of this.
+ *
+ * Callers may pass the invalidation stamp they took before asking. A load started under an older stamp may have
+ * read the row before the invalidation, so a caller with a newer stamp runs a load of its own instead of joining.
+ *
+ * Published as {name}.calls tagged result=loaded|coalesced, plus an {name}.inflight gauge.
+ **/
+public class SingleFlight<K, V> {
+
+    private final Map<K, Call<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter loaded;
+
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.loaded = Counter.builder(name + ".calls").tag("result", "loaded")
+                .description("Calls that ran the loader themselves")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder(name + ".calls").tag("result", "coalesced")
+                .description("Calls that shared a load already in flight for the same key")
+                .register(meterRegistry);
+        Gauge.builder(name + ".inflight", inFlight, Map::size)
+                .register(meterRegistry);
+    }
+
+    public V load(K key, Supplier<V> loader) {
+        return load(key, 0L, loader);
+    }
+
+    public V load(K key, long stamp, Supplier<V> loader) {
+        Call<V> call = new Call<>(stamp);
+        // A stale load stays with the callers already waiting on it, newer callers find this one from now on
+        Call<V> leader = inFlight.compute(key, (k, existing) -> existing != null && existing.stamp >= stamp
+                ? existing : call);
+
+        if (leader != call) {
+            coalesced.increment();
+            return await(leader.result);
+        }
+
+        loaded.increment();
+        try {
+            V value = loader.get();
+            call.result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    // Waiters see the leader's exception as is, not wrapped in a CompletionException
+    private V await(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class Call<V> {
+
+        private final long stamp;
+
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+
+        private Call(long stamp) {
+            this.stamp = stamp;
+        }
+    }
+}
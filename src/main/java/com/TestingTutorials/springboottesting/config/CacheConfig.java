@@ -0,0 +1,15 @@
+package com.TestingTutorials.springboottesting.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The cache manager itself is auto-configured from the spring.cache.* properties (caffeine),
+ * this only switches on the caching annotations and names the caches used by the services.
+ **/
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String EMPLOYEES_CACHE = "employees";
+}
@@ -0,0 +1,77 @@
+package com.TestingTutorials.springboottesting.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Switched on by employees.routing.enabled=true. Replaces the auto-configured pool with one primary pool built
+ * from spring.datasource.* plus one pool per employees.routing.replicas[n], joined by ReadWriteRoutingDataSource.
+ * The lazy proxy in front is what lets the routing see @Transactional(readOnly = true): hibernate asks for the
+ * connection at transaction begin, but the proxy only fetches a real one when the first statement runs, after
+ * the read-only flag is set. A transaction that never touches the database then never takes a connection at all.
+ **/
+@Configuration(proxyBeanMethods = false)
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "employees.routing", name = "enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReadWriteRoutingDataSource routingDataSource(DataSourceProperties dataSourceProperties,
+                                                        EmployeeProperties employeeProperties,
+                                                        Environment environment, MeterRegistry meterRegistry) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+        primary.setMetricRegistry(meterRegistry);
+
+        EmployeeProperties.RoutingProperties routing = employeeProperties.getRouting();
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < routing.getReplicas().size(); i++) {
+            EmployeeProperties.ReplicaProperties properties = routing.getReplicas().get(i);
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + i);
+            replica.setJdbcUrl(properties.getUrl());
+            replica.setUsername(StringUtils.hasText(properties.getUsername())
+                    ? properties.getUsername() : dataSourceProperties.determineUsername());
+            replica.setPassword(StringUtils.hasText(properties.getUsername())
+                    ? properties.getPassword() : dataSourceProperties.determinePassword());
+            replica.setMaximumPoolSize(properties.getMaxPoolSize());
+            replica.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+            replica.setReadOnly(true);
+            // A replica that is down at startup must not keep the application from starting
+            replica.setInitializationFailTimeout(-1);
+            replica.setMetricRegistry(meterRegistry);
+            replicas.put(replica.getPoolName(), replica);
+        }
+
+        return new ReadWriteRoutingDataSource(primary, replicas, routing.getHealthCheckInterval(),
+                routing.getReplicaLagWindow(), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(EmployeeProperties employeeProperties) {
+        return new ReadYourWritesFilter(employeeProperties.getRouting().getStickiness());
+    }
+}
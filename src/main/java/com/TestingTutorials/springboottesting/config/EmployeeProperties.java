@@ -0,0 +1,180 @@
+package com.TestingTutorials.springboottesting.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tunables for the employee API, bound from the "employees.*" keys in application.properties.
+ * Every value has a safe default so the application (and plain unit tests) work without any configuration.
+ **/
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "employees")
+public class EmployeeProperties {
+
+    private final ListProperties list = new ListProperties();
+
+    private final PageProperties page = new PageProperties();
+
+    private final ExportProperties export = new ExportProperties();
+
+    private final BatchProperties batch = new BatchProperties();
+
+    private final EmailFilterProperties emailFilter = new EmailFilterProperties();
+
+    private final ResponseCacheProperties responseCache = new ResponseCacheProperties();
+
+    private final ReadBatchProperties readBatch = new ReadBatchProperties();
+
+    private final InvalidationBusProperties invalidationBus = new InvalidationBusProperties();
+
+    private final WarmupProperties warmup = new WarmupProperties();
+
+    private final SnapshotProperties snapshot = new SnapshotProperties();
+
+    private final RoutingProperties routing = new RoutingProperties();
+
+    @Getter
+    @Setter
+    public static class ListProperties {
+        // Hard cap on the number of rows the legacy getAllEmployees endpoint will ever load
+        private int maxRows = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class PageProperties {
+        private int defaultSize = 50;
+
+        private int maxSize = 500;
+    }
+
+    @Getter
+    @Setter
+    public static class ExportProperties {
+        // Rows pulled per round trip by the server-side cursor behind the NDJSON export
+        private int fetchSize = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class BatchProperties {
+        // Largest number of employees accepted by a single batch create request
+        private int maxSize = 5000;
+    }
+
+    @Getter
+    @Setter
+    public static class EmailFilterProperties {
+        private boolean enabled = true;
+
+        // The filter is sized up front, past this many emails the false-positive rate climbs above the target
+        private long expectedInsertions = 1_000_000;
+
+        private double falsePositiveRate = 0.01;
+    }
+
+    @Getter
+    @Setter
+    public static class ResponseCacheProperties {
+        // Upper bound on the serialized JSON held for single employee reads
+        private long maxBytes = 32L * 1024 * 1024;
+
+        private Duration timeToLive = Duration.ofMinutes(10);
+    }
+
+    @Getter
+    @Setter
+    public static class ReadBatchProperties {
+        // Collects getEmployeeByID misses for different ids into one query. Off by default, it adds up to
+        // one window of latency to every miss and only pays off under high concurrency
+        private boolean enabled = false;
+
+        private Duration window = Duration.ofMillis(2);
+
+        private int maxSize = 100;
+    }
+
+    @Getter
+    @Setter
+    public static class InvalidationBusProperties {
+        // Share cache invalidations between instances over postgres LISTEN/NOTIFY
+        private boolean enabled = false;
+
+        private String channel = "employee_changes";
+
+        // How long one wait for notifications lasts, also bounds how quickly shutdown is noticed
+        private Duration pollInterval = Duration.ofMillis(500);
+
+        private Duration maxReconnectDelay = Duration.ofSeconds(30);
+
+        // How long a skipped sequence may stay missing before it counts as lost, concurrent commits reorder
+        private Duration reorderWindow = Duration.ofSeconds(1);
+    }
+
+    @Getter
+    @Setter
+    public static class WarmupProperties {
+        private boolean enabled = true;
+
+        // Readiness waits at most this long, whatever is unfinished by then is dropped and the instance starts cold
+        private Duration budget = Duration.ofSeconds(30);
+
+        // How many of the newest employees are loaded into the read caches
+        private int preloadCount = 1000;
+
+        private int parallelism = 4;
+
+        // Rounds of synthetic service calls for the JIT
+        private int iterations = 200;
+    }
+
+    @Getter
+    @Setter
+    public static class SnapshotProperties {
+        // Serve getAllEmloyees from an in-memory copy of the table that is patched on every write
+        private boolean enabled = false;
+
+        // Larger tables are not held, the list is then read from the database
+        private int maxSize = 50_000;
+    }
+
+    @Getter
+    @Setter
+    public static class RoutingProperties {
+        // Send read-only transactions to the replicas below, everything else stays on spring.datasource
+        private boolean enabled = false;
+
+        private List<ReplicaProperties> replicas = new ArrayList<>();
+
+        // How often every replica is probed, an ejected one comes back with the first probe that passes
+        private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+        // A client that wrote reads from the primary for this long afterwards, zero turns it off
+        private Duration stickiness = Duration.ofSeconds(5);
+
+        // After any change this instance reads from the primary for this long, so caches aren't refilled with lagging rows
+        private Duration replicaLagWindow = Duration.ofSeconds(1);
+    }
+
+    @Getter
+    @Setter
+    public static class ReplicaProperties {
+        private String url;
+
+        // Without a username both default to the primary's credentials
+        private String username;
+
+        private String password;
+
+        private int maxPoolSize = 10;
+
+        // Kept short, a replica that can't hand out a connection in time is ejected and the read goes to the primary
+        private Duration connectionTimeout = Duration.ofSeconds(1);
+    }
+}
@@ -0,0 +1,207 @@
+package com.TestingTutorials.springboottesting.config;
+
+import com.TestingTutorials.springboottesting.cache.EmployeeChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections for read-only transactions to the replica pools and everything else to the primary.
+ * It must sit behind a LazyConnectionDataSourceProxy: the read-only flag of a transaction is only set after
+ * the transaction manager asked for its connection, the proxy defers that until the first statement.
+ *
+ * Replicas are used round-robin. One that fails to hand out a connection is ejected on the spot and the read goes
+ * to the primary; a background check probes every replica and admits it again once it answers.
+ * Reads also go to the primary while the current thread is pinned (read-your-writes for a client that just wrote)
+ * and for a short window after any employee change, so a cache evicted by that change is never refilled from a
+ * replica that hasn't caught up yet.
+ **/
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    private static final ThreadLocal<Boolean> pinnedToPrimary = new ThreadLocal<>();
+
+    private final DataSource primary;
+
+    private final List<Replica> replicas = new ArrayList<>();
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final long replicaLagWindowNanos;
+
+    private final ScheduledExecutorService healthChecker;
+
+    private final Counter primaryConnections;
+
+    private final Counter replicaConnections;
+
+    private volatile long primaryOnlyUntil = System.nanoTime();
+
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration healthCheckInterval,
+                                      Duration replicaLagWindow, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+        this.replicaLagWindowNanos = replicaLagWindow.toNanos();
+
+        this.primaryConnections = Counter.builder("employees.datasource.connections").tag("target", "primary")
+                .register(meterRegistry);
+        this.replicaConnections = Counter.builder("employees.datasource.connections").tag("target", "replica")
+                .register(meterRegistry);
+        Gauge.builder("employees.datasource.replicas.healthy", this, ReadWriteRoutingDataSource::healthyReplicas)
+                .register(meterRegistry);
+
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!this.replicas.isEmpty()) {
+            long interval = healthCheckInterval.toMillis();
+            healthChecker.scheduleWithFixedDelay(this::checkReplicas, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static final class Replica {
+
+        private final String name;
+
+        private final DataSource dataSource;
+
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    // Set for the length of a request by ReadYourWritesFilter
+    public static void pinToPrimary(boolean pinned) {
+        if (pinned) {
+            pinnedToPrimary.set(Boolean.TRUE);
+        } else {
+            pinnedToPrimary.remove();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection(target -> target.getConnection(username, password));
+    }
+
+    private interface ConnectionSource {
+
+        Connection open(DataSource target) throws SQLException;
+    }
+
+    private Connection getConnection(ConnectionSource source) throws SQLException {
+        Replica replica = chooseReplica();
+
+        if (replica != null) {
+            try {
+                Connection connection = source.open(replica.dataSource);
+                replicaConnections.increment();
+                return connection;
+            } catch (SQLFeatureNotSupportedException e) {
+                // Hikari pools don't take per-call credentials, that says nothing about the replica's health
+                throw e;
+            } catch (SQLException e) {
+                eject(replica, e);
+            }
+        }
+        primaryConnections.increment();
+        return source.open(primary);
+    }
+
+    // Null means the primary
+    private Replica chooseReplica() {
+        if (replicas.isEmpty()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || pinnedToPrimary.get() != null
+                || System.nanoTime() - primaryOnlyUntil < 0) {
+            return null;
+        }
+
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private void eject(Replica replica, Exception cause) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            log.warn("Replica {} ejected, its reads go elsewhere until a health check passes", replica.name, cause);
+        }
+    }
+
+    void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (!connection.isValid(2)) {
+                    eject(replica, new SQLException("Connection is not valid"));
+                } else if (!replica.healthy) {
+                    replica.healthy = true;
+                    log.info("Replica {} is healthy again and back in rotation", replica.name);
+                }
+            } catch (SQLException | RuntimeException e) {
+                eject(replica, e);
+            }
+        }
+    }
+
+    private double healthyReplicas() {
+        return replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    // Any change, local or from another node, sends this node's reads to the primary for the lag window
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        primaryOnlyUntil = System.nanoTime() + replicaLagWindowNanos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        healthChecker.shutdownNow();
+        for (Replica replica : replicas) {
+            closeIfPossible(replica.dataSource);
+        }
+        closeIfPossible(primary);
+    }
+
+    private static void closeIfPossible(DataSource dataSource) throws IOException {
+        if (dataSource instanceof Closeable) {
+            ((Closeable) dataSource).close();
+        }
+    }
+}
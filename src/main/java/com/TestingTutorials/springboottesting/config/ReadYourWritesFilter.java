@@ -0,0 +1,78 @@
+package com.TestingTutorials.springboottesting.config;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Read-your-writes for replica routing. A write request hands the client a cookie holding the end of the
+ * stickiness window; while it hasn't passed, that client's requests read from the primary, so a GET straight
+ * after a PUT never sees a replica that is still behind. The write request itself is pinned as well.
+ **/
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "employees-primary-until";
+
+    private final Duration stickiness;
+
+    public ReadYourWritesFilter(Duration stickiness) {
+        this.stickiness = stickiness;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (stickiness.isZero() || stickiness.isNegative()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        boolean write = isWrite(request.getMethod());
+        if (write) {
+            long until = System.currentTimeMillis() + stickiness.toMillis();
+            Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(until));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (stickiness.toMillis() + 999) / 1000));
+            response.addCookie(cookie);
+        }
+
+        ReadWriteRoutingDataSource.pinToPrimary(write || wroteRecently(request));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadWriteRoutingDataSource.pinToPrimary(false);
+        }
+    }
+
+    private static boolean isWrite(String method) {
+        return HttpMethod.POST.matches(method) || HttpMethod.PUT.matches(method)
+                || HttpMethod.PATCH.matches(method) || HttpMethod.DELETE.matches(method);
+    }
+
+    // The cookie comes from the client, a value further out than one window is ignored rather than trusted
+    private boolean wroteRecently(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    long remaining = Long.parseLong(cookie.getValue()) - System.currentTimeMillis();
+                    return remaining > 0 && remaining <= stickiness.toMillis();
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
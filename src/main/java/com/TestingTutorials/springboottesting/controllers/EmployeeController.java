@@ -1,23 +1,68 @@
 package com.TestingTutorials.springboottesting.controllers;
 
 
+import com.TestingTutorials.springboottesting.Data.Dtos.CursorPage;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeeLookup;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeePatch;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeeSummary;
 import com.TestingTutorials.springboottesting.Data.Entities.Employee;
-import com.TestingTutorials.springboottesting.exceptions.ResourceNotFoundException;
+import com.TestingTutorials.springboottesting.cache.EmployeeListSnapshot;
+import com.TestingTutorials.springboottesting.cache.EmployeeResponseCache;
+import com.TestingTutorials.springboottesting.cache.EmployeeTableVersion;
+import com.TestingTutorials.springboottesting.exceptions.BadRequestException;
 import com.TestingTutorials.springboottesting.services.EmployeeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/employees")
 public class EmployeeController {
 
+    private static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+
+    private static final String CBOR_ETAG_SUFFIX = "-cbor";
+
+    private static final String SMILE_ETAG_SUFFIX = "-smile";
+
+    static final String TRUNCATED_HEADER = "X-Truncated";
+
     private EmployeeService employeeService;
 
-    public EmployeeController(EmployeeService employeeService) {
+    private ObjectMapper objectMapper;
+
+    private EmployeeResponseCache employeeResponseCache;
+
+    private EmployeeTableVersion employeeTableVersion;
+
+    private EmployeeListSnapshot employeeListSnapshot;
+
+    public EmployeeController(EmployeeService employeeService, ObjectMapper objectMapper,
+                              EmployeeResponseCache employeeResponseCache, EmployeeTableVersion employeeTableVersion,
+                              EmployeeListSnapshot employeeListSnapshot) {
         this.employeeService = employeeService;
+        this.objectMapper = objectMapper;
+        this.employeeResponseCache = employeeResponseCache;
+        this.employeeTableVersion = employeeTableVersion;
+        this.employeeListSnapshot = employeeListSnapshot;
     }
 
 
@@ -27,38 +72,265 @@ public class EmployeeController {
         return employeeService.saveNewEmployee(employee);
     }
 
+    @PostMapping(value = "/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public List<Employee> createEmployees(@RequestBody List<Employee> employees) {
+        return employeeService.saveNewEmployees(employees);
+    }
+
+    // The ETag comes from the table modification counter, so a poll of an unchanged list never reaches the database.
+    // When the list snapshot is on, JSON clients get its pre-serialized body tagged with the snapshot's own version,
+    // which moves on every swap, so the tag always belongs to the body it is sent with
     @GetMapping(value = "/getAllEmployees")
-    public List<Employee> getAllEmployees() {
-        return employeeService.getAllEmloyees();
+    public ResponseEntity<?> getAllEmployees(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                             WebRequest webRequest) {
+        MediaType binaryType = preferredBinaryType(accept);
+        EmployeeListSnapshot.Snapshot snapshot = binaryType != null ? null : employeeListSnapshot.get();
+        String version = snapshot != null ? "snapshot-" + snapshot.getVersion() : "list-" + employeeTableVersion.current();
+        String eTag = representationETag(version, binaryType);
+
+        if (webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        if (snapshot != null) {
+            return ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT)
+                    .headers(truncation(snapshot.getNextCursor(), null))
+                    .contentType(MediaType.APPLICATION_JSON).body(snapshot.getBody());
+        }
+        CursorPage<Employee> employees = employeeService.getAllEmloyees();
+        return ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT)
+                .headers(truncation(employees.getNextCursor(), null))
+                .body(employees.getContent());
+    }
+
+    // ?fields=firstName,email on the read endpoints selects and returns only those columns (plus the id)
+    @GetMapping(value = "/getAllEmployees", params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> getAllEmployeeFields(@RequestParam("fields") String fields) {
+        CursorPage<Map<String, Object>> rows = employeeService.getAllEmployeeFields(fields);
+        return ResponseEntity.ok().headers(truncation(rows.getNextCursor(), fields)).body(rows.getContent());
+    }
+
+    @GetMapping(value = "/page", params = "fields")
+    public CursorPage<Map<String, Object>> getEmployeeFieldsPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                                                 @RequestParam(value = "size", required = false) Integer size,
+                                                                 @RequestParam("fields") String fields) {
+        return employeeService.getEmployeeFieldsPage(cursor, size, fields);
+    }
+
+    // Resolves many ids in one call, e.g. GET /api/employees?ids=1,2,3. Results keep the requested order
+    @GetMapping(params = "ids")
+    public EmployeeLookup getEmployeesByIds(@RequestParam("ids") List<Long> employeeIds) {
+        return employeeService.getEmployeesByIds(employeeIds);
+    }
+
+    // Same lookup with the ids in the body, for sets too large for a query string
+    @PostMapping(value = "/lookup")
+    public EmployeeLookup lookupEmployees(@RequestBody List<Long> employeeIds) {
+        return employeeService.getEmployeesByIds(employeeIds);
+    }
+
+    @GetMapping(value = "/page")
+    public CursorPage<Employee> getEmployeesPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                                 @RequestParam(value = "size", required = false) Integer size) {
+        return employeeService.getEmployeesPage(cursor, size);
     }
 
+    // Id and display name only, paged like /page. Cheaper to build and to send when the full employee isn't needed
+    @GetMapping(value = "/summaries")
+    public CursorPage<EmployeeSummary> getEmployeeSummaries(@RequestParam(value = "cursor", required = false) String cursor,
+                                                            @RequestParam(value = "size", required = false) Integer size) {
+        return employeeService.getEmployeeSummariesPage(cursor, size);
+    }
+
+    // Streams every employee as newline delimited JSON. Nothing is buffered, rows are written to the
+    // response as the cursor reads them and the response goes out chunked since the length is unknown
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportEmployees() {
+        ObjectWriter employeeWriter = objectMapper.writerFor(Employee.class);
+
+        StreamingResponseBody body = outputStream -> employeeService.streamAllEmployees(employee -> {
+            try {
+                outputStream.write(employeeWriter.writeValueAsBytes(employee));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Hot JSON reads are answered from pre-serialized bytes, skipping both the database and jackson.
+    // Clients that ask for CBOR or Smile get the employee encoded by the message converters instead.
+    // A matching If-None-Match is answered with 304 before anything is serialized
     @GetMapping("{id}")
-    public ResponseEntity<Employee> getEmployeeById(@PathVariable("id") long id) {
-        return employeeService.getEmployeeByID(id)
+    public ResponseEntity<?> getEmployeeById(@PathVariable("id") long id,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                             WebRequest webRequest) {
+        MediaType binaryType = preferredBinaryType(accept);
+        if (binaryType != null) {
+            return employeeService.getEmployeeByID(id)
+                    .map(employee -> respond(representationETag(String.valueOf(employee.getVersion()), binaryType),
+                            null, () -> employee, webRequest))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        }
+
+        EmployeeResponseCache.CachedResponse cached = employeeResponseCache.get(id);
+
+        if (cached != null) {
+            return respond(versionETag(cached.getVersion()), MediaType.APPLICATION_JSON, cached::getBody, webRequest);
+        }
+
+        long stamp = employeeResponseCache.stamp();
+        Optional<Employee> employee = employeeService.getEmployeeByID(id);
+
+        if (employee.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Employee savedEmployee = employee.get();
+
+        return respond(versionETag(savedEmployee.getVersion()), MediaType.APPLICATION_JSON,
+                () -> employeeResponseCache.put(savedEmployee, stamp).getBody(), webRequest);
+    }
+
+    @GetMapping(value = "{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> getEmployeeFieldsById(@PathVariable("id") long id,
+                                                                     @RequestParam("fields") String fields) {
+        return employeeService.getEmployeeFieldsByID(id, fields)
                 .map(ResponseEntity::ok)
-                .orElseGet(() -> ResponseEntity.notFound().build()
-                );
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @PutMapping("{id}")
     public ResponseEntity<Employee> updateEmployee(@PathVariable long id, @RequestBody Employee employee) {
         return employeeService.getEmployeeByID(id)
                 .map(savedEmployee -> {
-                    savedEmployee.setEmail(employee.getEmail());
-                    savedEmployee.setFirstName(employee.getFirstName());
-                    savedEmployee.setLastName(employee.getLastName());
+                    // Build a fresh object rather than mutating savedEmployee, it may be the instance held in the cache
+                    Employee changedEmployee = Employee.builder()
+                            .employeeId(savedEmployee.getEmployeeId())
+                            .email(employee.getEmail())
+                            .firstName(employee.getFirstName())
+                            .lastName(employee.getLastName())
+                            .version(savedEmployee.getVersion())
+                            .build();
 
-                    Employee updatedEmployee = employeeService.UpdateEmployee(savedEmployee);
+                    Employee updatedEmployee = employeeService.UpdateEmployee(changedEmployee);
 
                     return new ResponseEntity<Employee>(updatedEmployee, HttpStatus.OK);
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    // Writes only the supplied fields in one conditional UPDATE, the If-Match version replaces the read before the write.
+    // A stale version gets 412, the new ETag comes back on success
+    @PatchMapping("{id}")
+    public ResponseEntity<Void> patchEmployee(@PathVariable("id") long id,
+                                              @RequestHeader(HttpHeaders.IF_MATCH) String ifMatch,
+                                              @RequestBody EmployeePatch patch) {
+        long version = employeeService.patchEmployee(id, parseVersionETag(ifMatch), patch);
+
+        return ResponseEntity.noContent().eTag(versionETag(version)).build();
+    }
+
     @DeleteMapping("{id}")
     public ResponseEntity<String> deleteEmployee(@PathVariable("id") long employeeId) {
         employeeService.deleteEmployee(employeeId);
 
         return new ResponseEntity<String>("Employee deleted successfully!", HttpStatus.OK);
     }
+
+    // Purges many employees with one DELETE statement and returns how many rows went, unknown ids are ignored
+    @PostMapping(value = "/delete")
+    public int deleteEmployees(@RequestBody List<Long> employeeIds) {
+        return employeeService.deleteEmployees(employeeIds);
+    }
+
+    // The body is only produced once the ETag check has failed. A null content type leaves it to content negotiation.
+    // The representation depends on Accept, so caches must key on it as well
+    private <T> ResponseEntity<T> respond(String eTag, MediaType contentType, Supplier<T> body, WebRequest webRequest) {
+        if (webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT);
+        if (contentType != null) {
+            response.contentType(contentType);
+        }
+        return response.body(body.get());
+    }
+
+    // CBOR or Smile when that is the client's first choice, null for anything else (including no Accept), which gets JSON
+    private static MediaType preferredBinaryType(String accept) {
+        if (accept == null) {
+            return null;
+        }
+
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        if (mediaTypes.isEmpty()) {
+            return null;
+        }
+
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        MediaType preferred = mediaTypes.get(0);
+
+        if (preferred.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR)) {
+            return MediaType.APPLICATION_CBOR;
+        }
+        return preferred.equalsTypeAndSubtype(SMILE) ? SMILE : null;
+    }
+
+    // Shared with EmployeeHandler
+    static String versionETag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    // Shared with EmployeeHandler. A list cut off at employees.list.max-rows says so in X-Truncated, and its next
+    // Link continues on /page right after the last row sent, with the same fields when there were any
+    static Consumer<HttpHeaders> truncation(String nextCursor, String fields) {
+        return headers -> {
+            if (nextCursor == null) {
+                return;
+            }
+            UriComponentsBuilder next = UriComponentsBuilder.fromPath("/api/employees/page");
+            if (fields != null) {
+                next.queryParam("fields", fields);
+            }
+            String link = next.queryParam("cursor", nextCursor).encode().toUriString();
+
+            headers.set(TRUNCATED_HEADER, "true");
+            headers.set(HttpHeaders.LINK, "<" + link + ">; rel=\"next\"");
+        };
+    }
+
+    // Each encoding is a different representation and gets its own strong tag, JSON keeps the bare version
+    private static String representationETag(String version, MediaType binaryType) {
+        if (binaryType == null) {
+            return "\"" + version + "\"";
+        }
+        return "\"" + version + (binaryType.equals(SMILE) ? SMILE_ETAG_SUFFIX : CBOR_ETAG_SUFFIX) + "\"";
+    }
+
+    // Only the strong tags handed out above name a version, weak and wildcard tags are refused.
+    // A binary representation's tag names the same version as the JSON one
+    static Long parseVersionETag(String eTag) {
+        if (eTag.length() > 2 && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+            String version = eTag.substring(1, eTag.length() - 1);
+            if (version.endsWith(CBOR_ETAG_SUFFIX)) {
+                version = version.substring(0, version.length() - CBOR_ETAG_SUFFIX.length());
+            } else if (version.endsWith(SMILE_ETAG_SUFFIX)) {
+                version = version.substring(0, version.length() - SMILE_ETAG_SUFFIX.length());
+            }
+            try {
+                return Long.valueOf(version);
+            } catch (NumberFormatException ignored) {
+                // fall through to the bad request below
+            }
+        }
+        throw new BadRequestException("If-Match must be a version ETag as returned by GET, e.g. \"3\"");
+    }
 }
@@ -0,0 +1,384 @@
+package com.TestingTutorials.springboottesting.controllers;
+
+import com.TestingTutorials.springboottesting.Data.Dtos.CursorPage;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeeLookup;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeePatch;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeeSummary;
+import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+import com.TestingTutorials.springboottesting.Data.Repositories.ReactiveEmployeeRepository;
+import com.TestingTutorials.springboottesting.cache.EmployeeChangedEvent;
+import com.TestingTutorials.springboottesting.cache.ReactiveEmployeeChanges;
+import com.TestingTutorials.springboottesting.config.EmployeeProperties;
+import com.TestingTutorials.springboottesting.exceptions.BadRequestException;
+import com.TestingTutorials.springboottesting.exceptions.EmployeeAlreadyExistsException;
+import com.TestingTutorials.springboottesting.exceptions.EmployeeModifiedException;
+import com.TestingTutorials.springboottesting.exceptions.PreconditionFailedException;
+import com.TestingTutorials.springboottesting.exceptions.ResourceNotFoundException;
+import com.TestingTutorials.springboottesting.utils.CursorCodec;
+import com.TestingTutorials.springboottesting.utils.FieldSelection;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reactive counterpart of EmployeeController for the reactive profile, wired to the routes in EmployeeRouter.
+ * Nothing here blocks, every request is served on the netty event loop. Writes go through ReactiveEmployeeChanges,
+ * so instances on the blocking stack see them the same way they see each other's.
+ **/
+@Component
+@Profile("reactive")
+public class EmployeeHandler {
+
+    private static final ParameterizedTypeReference<List<Employee>> EMPLOYEE_LIST = new ParameterizedTypeReference<>() {
+    };
+
+    private static final ParameterizedTypeReference<List<Long>> ID_LIST = new ParameterizedTypeReference<>() {
+    };
+
+    private final ReactiveEmployeeRepository employeeRepository;
+
+    private final ReactiveEmployeeChanges employeeChanges;
+
+    private final EmployeeProperties employeeProperties;
+
+    public EmployeeHandler(ReactiveEmployeeRepository employeeRepository, ReactiveEmployeeChanges employeeChanges,
+                           EmployeeProperties employeeProperties) {
+        this.employeeRepository = employeeRepository;
+        this.employeeChanges = employeeChanges;
+        this.employeeProperties = employeeProperties;
+    }
+
+    public Mono<ServerResponse> createEmployee(ServerRequest request) {
+        return request.bodyToMono(Employee.class)
+                .map(EmployeeHandler::requireFields)
+                .flatMap(employee -> employeeChanges.write(employeeRepository.insert(employee), EmployeeHandler::saved)
+                        .onErrorMap(DataIntegrityViolationException.class, e -> translateEmailConflict(e,
+                                "Employee already exists with given email: " + employee.getEmail())))
+                .flatMap(savedEmployee -> ServerResponse.status(HttpStatus.CREATED).bodyValue(savedEmployee));
+    }
+
+    // All or nothing, same limits and checks as the blocking batch create. Rows are inserted one after the other
+    // in a single transaction
+    public Mono<ServerResponse> createEmployees(ServerRequest request) {
+        return request.bodyToMono(EMPLOYEE_LIST)
+                .map(this::requireValidBatch)
+                .flatMap(employees -> employeeChanges.write(insertAll(employees),
+                                savedEmployees -> EmployeeChangedEvent.saved(savedEmployees.stream()
+                                        .map(Employee::getEmployeeId)
+                                        .collect(Collectors.toList())))
+                        .onErrorMap(DataIntegrityViolationException.class,
+                                e -> translateEmailConflict(e, "Employees already exist with given emails")))
+                .flatMap(savedEmployees -> ServerResponse.status(HttpStatus.CREATED).bodyValue(savedEmployees));
+    }
+
+    // Same row cap and truncation headers as the blocking endpoint. One row past the cap is read to know whether
+    // the list was cut off, so the rows are collected before the headers go out
+    public Mono<ServerResponse> getAllEmployees(ServerRequest request) {
+        int maxRows = employeeProperties.getList().getMaxRows();
+
+        return employeeRepository.findAll(maxRows + 1, employeeProperties.getExport().getFetchSize())
+                .collectList()
+                .map(rows -> toPage(rows, maxRows, Employee::getEmployeeId))
+                .flatMap(page -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .headers(EmployeeController.truncation(page.getNextCursor(), null))
+                        .bodyValue(page.getContent()));
+    }
+
+    public Mono<ServerResponse> getAllEmployeeFields(ServerRequest request) {
+        String fieldsParam = requiredParam(request, "fields");
+        List<String> fields = FieldSelection.parse(fieldsParam);
+        int maxRows = employeeProperties.getList().getMaxRows();
+
+        return employeeRepository.findFieldsAfter(fields, 0L, maxRows + 1)
+                .collectList()
+                .map(rows -> toPage(rows, maxRows, row -> ((Number) row.get(FieldSelection.ID_FIELD)).longValue()))
+                .flatMap(page -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .headers(EmployeeController.truncation(page.getNextCursor(), fieldsParam))
+                        .bodyValue(page.getContent()));
+    }
+
+    public Mono<ServerResponse> getEmployeesPage(ServerRequest request) {
+        long afterId = CursorCodec.decode(request.queryParam("cursor").orElse(null));
+        int pageSize = pageSize(request);
+
+        return employeeRepository.findAfter(afterId, pageSize + 1)
+                .collectList()
+                .map(rows -> toPage(rows, pageSize, Employee::getEmployeeId))
+                .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    public Mono<ServerResponse> getEmployeeFieldsPage(ServerRequest request) {
+        long afterId = CursorCodec.decode(request.queryParam("cursor").orElse(null));
+        int pageSize = pageSize(request);
+        List<String> fields = FieldSelection.parse(requiredParam(request, "fields"));
+
+        return employeeRepository.findFieldsAfter(fields, afterId, pageSize + 1)
+                .collectList()
+                .map(rows -> toPage(rows, pageSize, row -> ((Number) row.get(FieldSelection.ID_FIELD)).longValue()))
+                .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    public Mono<ServerResponse> getEmployeeSummaries(ServerRequest request) {
+        long afterId = CursorCodec.decode(request.queryParam("cursor").orElse(null));
+        int pageSize = pageSize(request);
+
+        return employeeRepository.findSummariesAfter(afterId, pageSize + 1)
+                .collectList()
+                .map(rows -> toPage(rows, pageSize, EmployeeSummary::getEmployeeId))
+                .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    // GET /api/employees?ids=1,2,3, results keep the requested order and unknown ids are listed as missing
+    public Mono<ServerResponse> getEmployeesByIds(ServerRequest request) {
+        List<Long> employeeIds = new ArrayList<>();
+        for (String ids : request.queryParams().get("ids")) {
+            for (String id : ids.split(",")) {
+                if (!id.isBlank()) {
+                    employeeIds.add(parseId(id.trim()));
+                }
+            }
+        }
+        return lookup(employeeIds);
+    }
+
+    public Mono<ServerResponse> lookupEmployees(ServerRequest request) {
+        return request.bodyToMono(ID_LIST)
+                .flatMap(this::lookup);
+    }
+
+    public Mono<ServerResponse> getEmployeeFieldsById(ServerRequest request) {
+        List<String> fields = FieldSelection.parse(requiredParam(request, "fields"));
+
+        return employeeRepository.findFieldsById(fields, employeeId(request))
+                .flatMap(row -> ServerResponse.ok().bodyValue(row))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    // Newline delimited JSON, one document per row, paced by how fast the client reads
+    public Mono<ServerResponse> exportEmployees(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(employeeRepository.streamAll(employeeProperties.getExport().getFetchSize()), Employee.class);
+    }
+
+    public Mono<ServerResponse> getEmployeeById(ServerRequest request) {
+        return employeeRepository.findById(employeeId(request))
+                .flatMap(employee -> ServerResponse.ok().bodyValue(employee))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    // Like the servlet PUT the write is checked against the version that was read, a concurrent change gets 409
+    public Mono<ServerResponse> updateEmployee(ServerRequest request) {
+        long employeeId = employeeId(request);
+
+        return request.bodyToMono(Employee.class)
+                .map(EmployeeHandler::requireFields)
+                .flatMap(employee -> employeeRepository.findById(employeeId)
+                        .flatMap(savedEmployee -> employeeChanges.write(employeeRepository
+                                                .update(employeeId, savedEmployee.getVersion(), employee)
+                                                .switchIfEmpty(Mono.error(() -> new EmployeeModifiedException(
+                                                        "Employee was changed by another request: " + employeeId))),
+                                        EmployeeHandler::saved)
+                                .onErrorMap(DataIntegrityViolationException.class, e -> translateEmailConflict(e,
+                                        "Employee already exists with given email: " + employee.getEmail()))))
+                .flatMap(updatedEmployee -> ServerResponse.ok().bodyValue(updatedEmployee))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    // One conditional UPDATE of the supplied fields against the If-Match version, 412 when it is stale
+    public Mono<ServerResponse> patchEmployee(ServerRequest request) {
+        long employeeId = employeeId(request);
+        long expectedVersion = EmployeeController.parseVersionETag(requiredHeader(request, HttpHeaders.IF_MATCH));
+
+        return request.bodyToMono(EmployeePatch.class)
+                .filter(patch -> !patch.isEmpty())
+                .switchIfEmpty(Mono.error(() ->
+                        new BadRequestException("Nothing to update, supply at least one of firstName, lastName or email")))
+                .flatMap(patch -> employeeChanges.write(employeeRepository.patch(employeeId, expectedVersion, patch),
+                                updated -> updated > 0 ? EmployeeChangedEvent.saved(List.of(employeeId)) : null)
+                        .onErrorMap(DataIntegrityViolationException.class, e -> translateEmailConflict(e,
+                                "Employee already exists with given email: " + patch.getEmail())))
+                .flatMap(updated -> updated > 0
+                        ? ServerResponse.noContent().eTag(EmployeeController.versionETag(expectedVersion + 1)).build()
+                        // Only the miss costs a second query, to tell a deleted employee apart from a stale version
+                        : employeeRepository.existsById(employeeId).flatMap(exists -> Mono.error(exists
+                                ? new PreconditionFailedException("Employee " + employeeId + " is no longer at version "
+                                        + expectedVersion)
+                                : new ResourceNotFoundException("Employee not found with id: " + employeeId))));
+    }
+
+    public Mono<ServerResponse> deleteEmployee(ServerRequest request) {
+        long employeeId = employeeId(request);
+
+        return employeeChanges.write(employeeRepository.deleteById(employeeId),
+                        deleted -> deleted > 0 ? EmployeeChangedEvent.deleted(List.of(employeeId)) : null)
+                .then(ServerResponse.ok().bodyValue("Employee deleted successfully!"));
+    }
+
+    // One DELETE for all the ids, answers how many rows went. Unknown ids are ignored
+    public Mono<ServerResponse> deleteEmployees(ServerRequest request) {
+        return request.bodyToMono(ID_LIST)
+                .map(ids -> distinctIds(ids, "batch"))
+                .flatMap(employeeIds -> employeeIds.isEmpty()
+                        ? Mono.just(0)
+                        : employeeChanges.write(employeeRepository.deleteByIds(employeeIds),
+                                deleted -> EmployeeChangedEvent.deleted(employeeIds)))
+                .flatMap(deleted -> ServerResponse.ok().bodyValue(deleted));
+    }
+
+    private Mono<ServerResponse> lookup(List<Long> ids) {
+        Set<Long> employeeIds = distinctIds(ids, "lookup");
+        Mono<Map<Long, Employee>> rows = employeeIds.isEmpty()
+                ? Mono.just(Map.of())
+                : employeeRepository.findAllById(employeeIds).collectMap(Employee::getEmployeeId);
+
+        return rows
+                .map(found -> {
+                    List<Employee> employees = new ArrayList<>();
+                    List<Long> missingIds = new ArrayList<>();
+                    for (Long employeeId : employeeIds) {
+                        Employee employee = found.get(employeeId);
+                        if (employee != null) {
+                            employees.add(employee);
+                        } else {
+                            missingIds.add(employeeId);
+                        }
+                    }
+                    return new EmployeeLookup(employees, missingIds);
+                })
+                .flatMap(lookup -> ServerResponse.ok().bodyValue(lookup));
+    }
+
+    private Mono<List<Employee>> insertAll(List<Employee> employees) {
+        if (employees.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        List<String> emails = employees.stream().map(Employee::getEmail).collect(Collectors.toList());
+
+        return employeeRepository.findExistingEmails(emails)
+                .collectList()
+                .flatMap(existingEmails -> existingEmails.isEmpty()
+                        ? Flux.fromIterable(employees).concatMap(employeeRepository::insert).collectList()
+                        : Mono.error(new EmployeeAlreadyExistsException(
+                                "Employees already exist with given emails: " + existingEmails)));
+    }
+
+    private List<Employee> requireValidBatch(List<Employee> employees) {
+        int maxSize = employeeProperties.getBatch().getMaxSize();
+        if (employees.size() > maxSize) {
+            throw new BadRequestException("A batch can hold at most " + maxSize + " employees");
+        }
+
+        Set<String> emails = new HashSet<>();
+        for (Employee employee : employees) {
+            requireFields(employee);
+            if (!emails.add(employee.getEmail())) {
+                throw new BadRequestException("Email appears more than once in the batch: " + employee.getEmail());
+            }
+        }
+        return employees;
+    }
+
+    private Set<Long> distinctIds(List<Long> ids, String kind) {
+        int maxSize = employeeProperties.getBatch().getMaxSize();
+        if (ids.size() > maxSize) {
+            throw new BadRequestException("A " + kind + " can hold at most " + maxSize + " ids");
+        }
+        return ids.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    // One row beyond the page tells whether another page follows, same as the blocking stack
+    private static <T> CursorPage<T> toPage(List<T> rows, int pageSize, Function<T, Long> idOf) {
+        boolean hasNext = rows.size() > pageSize;
+        List<T> content = hasNext ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasNext ? CursorCodec.encode(idOf.apply(content.get(content.size() - 1))) : null;
+
+        return new CursorPage<>(content, nextCursor, hasNext);
+    }
+
+    private int pageSize(ServerRequest request) {
+        EmployeeProperties.PageProperties page = employeeProperties.getPage();
+        Integer size = request.queryParam("size").map(EmployeeHandler::parseInt).orElse(null);
+
+        if (size == null || size < 1) {
+            return page.getDefaultSize();
+        }
+        return Math.min(size, page.getMaxSize());
+    }
+
+    private static EmployeeChangedEvent saved(Employee employee) {
+        return EmployeeChangedEvent.saved(List.of(employee.getEmployeeId()));
+    }
+
+    private static long employeeId(ServerRequest request) {
+        return parseId(request.pathVariable("id"));
+    }
+
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Employee id must be a number: " + id);
+        }
+    }
+
+    private static Integer parseInt(String value) {
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Not a number: " + value);
+        }
+    }
+
+    private static String requiredParam(ServerRequest request, String name) {
+        return request.queryParam(name)
+                .orElseThrow(() -> new BadRequestException("Missing request parameter: " + name));
+    }
+
+    private static String requiredHeader(ServerRequest request, String name) {
+        String value = request.headers().firstHeader(name);
+        if (value == null) {
+            throw new BadRequestException("Missing request header: " + name);
+        }
+        return value;
+    }
+
+    // The columns are not null, catching it here gives a 400 instead of a failed statement
+    private static Employee requireFields(Employee employee) {
+        if (employee.getFirstName() == null || employee.getLastName() == null || employee.getEmail() == null) {
+            throw new BadRequestException("firstName, lastName and email are required");
+        }
+        return employee;
+    }
+
+    private static RuntimeException translateEmailConflict(DataIntegrityViolationException e, String conflictMessage) {
+        String message = e.getMostSpecificCause().getMessage();
+
+        if (message != null && message.contains(Employee.EMAIL_UNIQUE_CONSTRAINT)) {
+            return new EmployeeAlreadyExistsException(conflictMessage);
+        }
+        return e;
+    }
+}
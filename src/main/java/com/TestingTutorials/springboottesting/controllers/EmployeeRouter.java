@@ -0,0 +1,52 @@
+package com.TestingTutorials.springboottesting.controllers;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.reactive.function.server.RequestPredicate;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Routes for the reactive profile, the same /api/employees paths EmployeeController serves on the servlet stack.
+ * Conditional GETs and the CBOR/Smile representations are left to the servlet stack, everything here is JSON.
+ **/
+@Configuration
+@Profile("reactive")
+public class EmployeeRouter {
+
+    private static final RequestPredicate FIELDS = RequestPredicates.queryParam("fields", fields -> true);
+
+    @Bean
+    public RouterFunction<ServerResponse> employeeRoutes(EmployeeHandler employeeHandler) {
+        return RouterFunctions.route()
+                .path("/api/employees", builder -> builder
+                        .POST("/create", employeeHandler::createEmployee)
+                        .POST("/batch", employeeHandler::createEmployees)
+                        // Routes are tried in order, the ?fields= variants come before the full ones
+                        .GET("/getAllEmployees", FIELDS, employeeHandler::getAllEmployeeFields)
+                        .GET("/getAllEmployees", employeeHandler::getAllEmployees)
+                        .GET("/page", FIELDS, employeeHandler::getEmployeeFieldsPage)
+                        .GET("/page", employeeHandler::getEmployeesPage)
+                        .GET("/summaries", employeeHandler::getEmployeeSummaries)
+                        .GET("", RequestPredicates.queryParam("ids", ids -> true), employeeHandler::getEmployeesByIds)
+                        .POST("/lookup", employeeHandler::lookupEmployees)
+                        .POST("/delete", employeeHandler::deleteEmployees)
+                        .GET("/export", employeeHandler::exportEmployees)
+                        .GET("/{id}", FIELDS, employeeHandler::getEmployeeFieldsById)
+                        .GET("/{id}", employeeHandler::getEmployeeById)
+                        .PUT("/{id}", employeeHandler::updateEmployee)
+                        .PATCH("/{id}", employeeHandler::patchEmployee)
+                        .DELETE("/{id}", employeeHandler::deleteEmployee))
+                .build();
+    }
+
+    // Tomcat is on the classpath for the servlet stack and would otherwise be picked, netty gives the small event loop
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
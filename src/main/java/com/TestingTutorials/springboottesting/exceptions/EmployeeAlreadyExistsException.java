@@ -0,0 +1,16 @@
+package com.TestingTutorials.springboottesting.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the unique email constraint rejects an insert or update.
+ * A duplicate is an expected outcome rather than a bug, so no stack trace is captured for it.
+ **/
+@ResponseStatus(HttpStatus.CONFLICT)
+public class EmployeeAlreadyExistsException extends RuntimeException{
+
+    public EmployeeAlreadyExistsException (String message) {
+        super(message, null, false, false);
+    }
+}
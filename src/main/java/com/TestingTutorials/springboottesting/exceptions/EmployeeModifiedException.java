@@ -0,0 +1,16 @@
+package com.TestingTutorials.springboottesting.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when an update was based on a version of the employee that has since been changed by someone else.
+ * Like a duplicate email this is an expected outcome under concurrency, so no stack trace is captured.
+ **/
+@ResponseStatus(HttpStatus.CONFLICT)
+public class EmployeeModifiedException extends RuntimeException{
+
+    public EmployeeModifiedException (String message) {
+        super(message, null, false, false);
+    }
+}
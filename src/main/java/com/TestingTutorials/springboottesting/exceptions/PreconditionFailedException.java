@@ -0,0 +1,16 @@
+package com.TestingTutorials.springboottesting.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a conditional write names a version (If-Match) that is no longer the current one.
+ * The client is expected to re-read and retry, so no stack trace is captured.
+ **/
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class PreconditionFailedException extends RuntimeException{
+
+    public PreconditionFailedException (String message) {
+        super(message, null, false, false);
+    }
+}
@@ -1,18 +1,45 @@
 package com.TestingTutorials.springboottesting.services;
 
+import com.TestingTutorials.springboottesting.Data.Dtos.CursorPage;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeeLookup;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeePatch;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeeSummary;
 import com.TestingTutorials.springboottesting.Data.Entities.Employee;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface EmployeeService {
     Employee saveNewEmployee(Employee employee);
 
-    List<Employee> getAllEmloyees();
+    List<Employee> saveNewEmployees(List<Employee> employees);
+
+    // At most employees.list.max-rows employees, hasNext and nextCursor tell whether getEmployeesPage continues
+    CursorPage<Employee> getAllEmloyees();
+
+    CursorPage<Employee> getEmployeesPage(String cursor, Integer size);
+
+    CursorPage<EmployeeSummary> getEmployeeSummariesPage(String cursor, Integer size);
+
+    CursorPage<Map<String, Object>> getAllEmployeeFields(String fields);
+
+    CursorPage<Map<String, Object>> getEmployeeFieldsPage(String cursor, Integer size, String fields);
+
+    Optional<Map<String, Object>> getEmployeeFieldsByID(Long employeeId, String fields);
+
+    void streamAllEmployees(Consumer<Employee> action);
 
     Optional<Employee> getEmployeeByID(Long employeeId);
 
+    EmployeeLookup getEmployeesByIds(List<Long> employeeIds);
+
     Employee UpdateEmployee(Employee updatedEmployee);
 
+    long patchEmployee(Long employeeId, Long expectedVersion, EmployeePatch patch);
+
     void deleteEmployee(Long id);
+
+    int deleteEmployees(List<Long> ids);
 }
@@ -1,57 +1,431 @@
 package com.TestingTutorials.springboottesting.services.ServiceImpl;
 
+import com.TestingTutorials.springboottesting.Data.Dtos.CursorPage;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeeLookup;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeePatch;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeeSummary;
 import com.TestingTutorials.springboottesting.Data.Entities.Employee;
 import com.TestingTutorials.springboottesting.Data.Repositories.EmployeeRepository;
+import com.TestingTutorials.springboottesting.cache.BatchLoader;
+import com.TestingTutorials.springboottesting.cache.EmailBloomFilter;
+import com.TestingTutorials.springboottesting.cache.EmployeeCacheInvalidator;
+import com.TestingTutorials.springboottesting.cache.EmployeeChangedEvent;
+import com.TestingTutorials.springboottesting.cache.EmployeeListSnapshot;
+import com.TestingTutorials.springboottesting.cache.SingleFlight;
+import com.TestingTutorials.springboottesting.config.CacheConfig;
+import com.TestingTutorials.springboottesting.config.EmployeeProperties;
+import com.TestingTutorials.springboottesting.exceptions.BadRequestException;
+import com.TestingTutorials.springboottesting.exceptions.EmployeeAlreadyExistsException;
+import com.TestingTutorials.springboottesting.exceptions.EmployeeModifiedException;
+import com.TestingTutorials.springboottesting.exceptions.PreconditionFailedException;
 import com.TestingTutorials.springboottesting.exceptions.ResourceNotFoundException;
 import com.TestingTutorials.springboottesting.services.EmployeeService;
+import com.TestingTutorials.springboottesting.utils.CursorCodec;
+import com.TestingTutorials.springboottesting.utils.FieldSelection;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Profile("!reactive")
 public class EmployeeServiceImpl implements EmployeeService {
 
 //    @Autowired
     private EmployeeRepository employeeRepository;
 
+    private EmployeeProperties employeeProperties;
+
+    private EmailBloomFilter emailBloomFilter;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private CacheManager cacheManager;
+
+    private EmployeeCacheInvalidator employeeCacheInvalidator;
+
+    private EmployeeListSnapshot employeeListSnapshot;
+
+    private SingleFlight<Long, Optional<Employee>> employeeLookups;
+
+    // Null unless employees.read-batch.enabled is set
+    private BatchLoader<Long, Employee> employeeBatchLoader;
+
     @Autowired
-    public EmployeeServiceImpl (EmployeeRepository employeeRepository) {
+    public EmployeeServiceImpl (EmployeeRepository employeeRepository, EmployeeProperties employeeProperties,
+                                EmailBloomFilter emailBloomFilter, ApplicationEventPublisher eventPublisher,
+                                CacheManager cacheManager, EmployeeCacheInvalidator employeeCacheInvalidator,
+                                EmployeeListSnapshot employeeListSnapshot, MeterRegistry meterRegistry) {
         this.employeeRepository = employeeRepository;
+        this.employeeProperties = employeeProperties;
+        this.emailBloomFilter = emailBloomFilter;
+        this.eventPublisher = eventPublisher;
+        this.cacheManager = cacheManager;
+        this.employeeCacheInvalidator = employeeCacheInvalidator;
+        this.employeeListSnapshot = employeeListSnapshot;
+        this.employeeLookups = new SingleFlight<>("employees.lookup", meterRegistry);
+
+        EmployeeProperties.ReadBatchProperties readBatch = employeeProperties.getReadBatch();
+        if (readBatch.isEnabled()) {
+            this.employeeBatchLoader = new BatchLoader<>("employees.read.batch", readBatch.getWindow(),
+                    readBatch.getMaxSize(), this::findAllByIdAsMap, meterRegistry);
+        }
+    }
+
+    // Stops the read batch dispatcher thread with the context
+    @PreDestroy
+    public void shutdown() {
+        if (employeeBatchLoader != null) {
+            employeeBatchLoader.close();
+        }
     }
 
     @Override
     public Employee saveNewEmployee(Employee employee) {
 
-        Optional<Employee> savedEmployee = employeeRepository.findByEmail(employee.getEmail());
+        // Always a new row, a client supplied id would otherwise merge over an existing employee
+        employee.setEmployeeId(null);
+        employee.setVersion(null);
+
+        // No findByEmail beforehand, the unique email constraint rejects duplicates in the same round trip
+        // as the insert and also covers two requests racing with the same email
+        try {
+            Employee savedEmployee = employeeRepository.saveAndFlush(employee);
+            emailBloomFilter.put(savedEmployee.getEmail());
+            eventPublisher.publishEvent(EmployeeChangedEvent.saved(List.of(savedEmployee.getEmployeeId())));
+            return savedEmployee;
+        } catch (DataIntegrityViolationException e) {
+            throw translateEmailConflict(e, "Employee already exists with given email: " + employee.getEmail());
+        }
+    }
+
+    @Override
+    @Transactional
+    public List<Employee> saveNewEmployees(List<Employee> employees) {
+        int maxSize = employeeProperties.getBatch().getMaxSize();
+
+        if (employees.size() > maxSize) {
+            throw new BadRequestException("A batch can hold at most " + maxSize + " employees");
+        }
+        if (employees.isEmpty()) {
+            return List.of();
+        }
+
+        Set<String> emails = new HashSet<>();
+        for (Employee employee : employees) {
+            if (!emails.add(employee.getEmail())) {
+                throw new BadRequestException("Email appears more than once in the batch: " + employee.getEmail());
+            }
+            // New rows only, a client supplied id would turn every persist into a select + merge
+            employee.setEmployeeId(null);
+            employee.setVersion(null);
+        }
+
+        // Emails the Bloom filter has never seen can't be taken, when that covers the whole batch the query is skipped
+        List<String> possiblyTakenEmails = emails.stream()
+                .filter(emailBloomFilter::mightContain)
+                .collect(Collectors.toList());
+
+        List<String> existingEmails = possiblyTakenEmails.isEmpty()
+                ? List.of()
+                : employeeRepository.findExistingEmails(possiblyTakenEmails);
+
+        if (!existingEmails.isEmpty()) {
+            throw new EmployeeAlreadyExistsException("Employees already exist with given emails: " + existingEmails);
+        }
 
-        if(savedEmployee.isPresent()){
-            throw new ResourceNotFoundException("Employee already exists with given email: " + employee.getEmail());
+        // The check above can still lose a race with a concurrent insert, flushing here surfaces that as a conflict
+        try {
+            List<Employee> savedEmployees = employeeRepository.saveAll(employees);
+            employeeRepository.flush();
+            emails.forEach(emailBloomFilter::put);
+            eventPublisher.publishEvent(EmployeeChangedEvent.saved(savedEmployees.stream()
+                    .map(Employee::getEmployeeId)
+                    .collect(Collectors.toList())));
+            return savedEmployees;
+        } catch (DataIntegrityViolationException e) {
+            throw translateEmailConflict(e, "Employees already exist with given emails");
         }
-        return employeeRepository.save(employee);
     }
 
     @Override
-    public List<Employee> getAllEmloyees() {
-        return employeeRepository.findAll();
+    public CursorPage<Employee> getAllEmloyees() {
+        // With employees.snapshot.enabled the list comes from memory, it only falls through when the table is too large
+        EmployeeListSnapshot.Snapshot snapshot = employeeListSnapshot.get();
+        if (snapshot != null) {
+            return new CursorPage<>(snapshot.getEmployees(), snapshot.getNextCursor(), snapshot.getNextCursor() != null);
+        }
+
+        // Never load the whole table in one go, callers that need everything should page through getEmployeesPage.
+        // The cursor after the last row lets them continue there instead of silently missing the rest
+        int maxRows = employeeProperties.getList().getMaxRows();
+
+        Slice<Employee> slice = employeeRepository.findByEmployeeIdGreaterThan(0L,
+                PageRequest.of(0, maxRows, Sort.by("employeeId")));
+
+        List<Employee> content = slice.getContent();
+        String nextCursor = slice.hasNext()
+                ? CursorCodec.encode(content.get(content.size() - 1).getEmployeeId())
+                : null;
+
+        return new CursorPage<>(content, nextCursor, slice.hasNext());
+    }
+
+    @Override
+    public CursorPage<Employee> getEmployeesPage(String cursor, Integer size) {
+        long afterId = CursorCodec.decode(cursor);
+
+        Slice<Employee> slice = employeeRepository.findByEmployeeIdGreaterThan(afterId,
+                PageRequest.of(0, resolvePageSize(size), Sort.by("employeeId")));
+
+        List<Employee> content = slice.getContent();
+        String nextCursor = slice.hasNext()
+                ? CursorCodec.encode(content.get(content.size() - 1).getEmployeeId())
+                : null;
+
+        return new CursorPage<>(content, nextCursor, slice.hasNext());
+    }
+
+    @Override
+    // Read-only so hibernate skips flushing, the summaries are plain DTOs and never enter the persistence context
+    @Transactional(readOnly = true)
+    public CursorPage<EmployeeSummary> getEmployeeSummariesPage(String cursor, Integer size) {
+        long afterId = CursorCodec.decode(cursor);
+
+        Slice<EmployeeSummary> slice = employeeRepository.findSummariesAfter(afterId,
+                PageRequest.of(0, resolvePageSize(size)));
+
+        List<EmployeeSummary> content = slice.getContent();
+        String nextCursor = slice.hasNext()
+                ? CursorCodec.encode(content.get(content.size() - 1).getEmployeeId())
+                : null;
+
+        return new CursorPage<>(content, nextCursor, slice.hasNext());
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Map<String, Object>> getAllEmployeeFields(String fields) {
+        return fieldsPage(fields, 0L, employeeProperties.getList().getMaxRows());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Map<String, Object>> getEmployeeFieldsPage(String cursor, Integer size, String fields) {
+        return fieldsPage(fields, CursorCodec.decode(cursor), resolvePageSize(size));
+    }
+
+    private CursorPage<Map<String, Object>> fieldsPage(String fields, long afterId, int pageSize) {
+        // One row beyond the page tells whether another page follows, same as the Slice queries
+        List<Map<String, Object>> rows = employeeRepository.findFieldsAfter(FieldSelection.parse(fields), afterId, pageSize + 1);
+
+        boolean hasNext = rows.size() > pageSize;
+        List<Map<String, Object>> content = hasNext ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasNext
+                ? CursorCodec.encode(((Number) content.get(content.size() - 1).get(FieldSelection.ID_FIELD)).longValue())
+                : null;
+
+        return new CursorPage<>(content, nextCursor, hasNext);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> getEmployeeFieldsByID(Long employeeId, String fields) {
+        return employeeRepository.findFieldsById(FieldSelection.parse(fields), employeeId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllEmployees(Consumer<Employee> action) {
+        try (Stream<Employee> employees = employeeRepository.streamAll(employeeProperties.getExport().getFetchSize())) {
+            employees.forEach(action);
+        }
+    }
+
+    @Override
+    // Entries are evicted by EmployeeCacheInvalidator from the change events published by the write methods.
+    // Not @Cacheable, the put has to be dropped when an eviction lands while the row is being read
     public Optional<Employee> getEmployeeByID(Long employeeId) {
+        Cache employeesCache = cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE);
+        Employee cached = employeesCache == null ? null : employeesCache.get(employeeId, Employee.class);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
 
-        Optional<Employee> savedEmployee = employeeRepository.findById(employeeId);
+        // Right after an eviction many requests miss together, they share one findById instead of each sending
+        // the same query. With read batching on, misses for different ids within one window also share a single
+        // IN query. The stamp keeps anyone arriving after the eviction off a load that started before it
+        long stamp = employeeCacheInvalidator.stamp();
+        Optional<Employee> savedEmployee = employeeLookups.load(employeeId, stamp, () -> employeeBatchLoader != null
+                ? employeeBatchLoader.load(employeeId)
+                : employeeRepository.findById(employeeId));
 
+        savedEmployee.ifPresent(employee -> employeeCacheInvalidator.put(employee, stamp));
         return savedEmployee;
     }
 
+    @Override
+    public EmployeeLookup getEmployeesByIds(List<Long> employeeIds) {
+        int maxSize = employeeProperties.getBatch().getMaxSize();
+
+        if (employeeIds.size() > maxSize) {
+            throw new BadRequestException("A lookup can hold at most " + maxSize + " ids");
+        }
+
+        Set<Long> requestedIds = employeeIds.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        // Same cache getEmployeeByID reads through, only the ids it doesn't hold go to the database
+        Cache employeesCache = cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE);
+        Map<Long, Employee> found = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+
+        for (Long employeeId : requestedIds) {
+            Employee cached = employeesCache == null ? null : employeesCache.get(employeeId, Employee.class);
+            if (cached != null) {
+                found.put(employeeId, cached);
+            } else {
+                misses.add(employeeId);
+            }
+        }
+
+        // One IN query for every miss, the fetched rows fill the cache for the single reads as well
+        if (!misses.isEmpty()) {
+            long stamp = employeeCacheInvalidator.stamp();
+            for (Employee employee : employeeRepository.findAllById(misses)) {
+                found.put(employee.getEmployeeId(), employee);
+                employeeCacheInvalidator.put(employee, stamp);
+            }
+        }
+
+        List<Employee> employees = new ArrayList<>();
+        List<Long> missingIds = new ArrayList<>();
+        for (Long employeeId : requestedIds) {
+            Employee employee = found.get(employeeId);
+            if (employee != null) {
+                employees.add(employee);
+            } else {
+                missingIds.add(employeeId);
+            }
+        }
+        return new EmployeeLookup(employees, missingIds);
+    }
+
     @Override
     public Employee UpdateEmployee(Employee updatedEmployee) {
-        return employeeRepository.save(updatedEmployee);
+        try {
+            Employee savedEmployee = employeeRepository.saveAndFlush(updatedEmployee);
+            emailBloomFilter.put(savedEmployee.getEmail());
+            eventPublisher.publishEvent(EmployeeChangedEvent.saved(List.of(savedEmployee.getEmployeeId())));
+            return savedEmployee;
+        } catch (DataIntegrityViolationException e) {
+            throw translateEmailConflict(e, "Employee already exists with given email: " + updatedEmployee.getEmail());
+        } catch (OptimisticLockingFailureException e) {
+            throw new EmployeeModifiedException("Employee was changed by another request: " + updatedEmployee.getEmployeeId());
+        }
+    }
+
+    @Override
+    @Transactional
+    public long patchEmployee(Long employeeId, Long expectedVersion, EmployeePatch patch) {
+        if (patch.isEmpty()) {
+            throw new BadRequestException("Nothing to update, supply at least one of firstName, lastName or email");
+        }
+
+        int updated;
+        try {
+            updated = employeeRepository.patch(employeeId, expectedVersion, patch);
+        } catch (DataIntegrityViolationException e) {
+            throw translateEmailConflict(e, "Employee already exists with given email: " + patch.getEmail());
+        }
+
+        // Only the miss costs a second query, to tell a deleted employee apart from a stale version
+        if (updated == 0) {
+            if (!employeeRepository.existsById(employeeId)) {
+                throw new ResourceNotFoundException("Employee not found with id: " + employeeId);
+            }
+            throw new PreconditionFailedException("Employee " + employeeId + " is no longer at version " + expectedVersion);
+        }
+
+        if (patch.getEmail() != null) {
+            emailBloomFilter.put(patch.getEmail());
+        }
+        eventPublisher.publishEvent(EmployeeChangedEvent.saved(List.of(employeeId)));
+        return expectedVersion + 1;
     }
 
     @Override
     public void deleteEmployee(Long id) {
         employeeRepository.deleteById(id);
+        eventPublisher.publishEvent(EmployeeChangedEvent.deleted(List.of(id)));
+    }
+
+    @Override
+    @Transactional
+    public int deleteEmployees(List<Long> ids) {
+        int maxSize = employeeProperties.getBatch().getMaxSize();
+
+        if (ids.size() > maxSize) {
+            throw new BadRequestException("A batch can hold at most " + maxSize + " ids");
+        }
+
+        Set<Long> employeeIds = ids.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (employeeIds.isEmpty()) {
+            return 0;
+        }
+
+        // The Bloom filter keeps the deleted emails, a false "maybe" only costs the existing email query
+        int deleted = employeeRepository.deleteByEmployeeIds(employeeIds);
+        eventPublisher.publishEvent(EmployeeChangedEvent.deleted(employeeIds));
+        return deleted;
+    }
+
+    private Map<Long, Employee> findAllByIdAsMap(List<Long> employeeIds) {
+        return employeeRepository.findAllById(employeeIds).stream()
+                .collect(Collectors.toMap(Employee::getEmployeeId, employee -> employee));
+    }
+
+    private int resolvePageSize(Integer size) {
+        EmployeeProperties.PageProperties page = employeeProperties.getPage();
+
+        if (size == null || size < 1) {
+            return page.getDefaultSize();
+        }
+        return Math.min(size, page.getMaxSize());
+    }
+
+    private RuntimeException translateEmailConflict(DataIntegrityViolationException e, String message) {
+        if (e.getCause() instanceof ConstraintViolationException
+                && Employee.EMAIL_UNIQUE_CONSTRAINT.equalsIgnoreCase(((ConstraintViolationException) e.getCause()).getConstraintName())) {
+            return new EmployeeAlreadyExistsException(message);
+        }
+        return e;
     }
 }
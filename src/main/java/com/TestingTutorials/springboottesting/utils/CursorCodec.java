@@ -0,0 +1,39 @@
+package com.TestingTutorials.springboottesting.utils;
+
+import com.TestingTutorials.springboottesting.exceptions.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes the last seen employeeId into an opaque continuation token, so clients
+ * don't build cursors themselves and the format can change without breaking them.
+ **/
+public final class CursorCodec {
+
+    private static final String PREFIX = "e:";
+
+    private CursorCodec() {
+    }
+
+    public static String encode(long lastEmployeeId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastEmployeeId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // A missing cursor means "start from the beginning"
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(PREFIX)) {
+                throw new BadRequestException("Invalid cursor: " + cursor);
+            }
+            return Long.parseLong(decoded.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.TestingTutorials.springboottesting.utils;
+
+import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+import com.TestingTutorials.springboottesting.exceptions.BadRequestException;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Parses a sparse fieldset such as "?fields=firstName,email" into the Employee attributes to select.
+ * The id is always part of the selection, it identifies the row and keyset paging needs it.
+ * Allowed names are read off the entity, so a new column becomes selectable without touching this class.
+ **/
+public final class FieldSelection {
+
+    public static final String ID_FIELD = "employeeId";
+
+    private static final Set<String> EMPLOYEE_FIELDS = Arrays.stream(Employee.class.getDeclaredFields())
+            .filter(field -> !Modifier.isStatic(field.getModifiers()))
+            .map(Field::getName)
+            .collect(Collectors.toUnmodifiableSet());
+
+    private FieldSelection() {
+    }
+
+    public static List<String> parse(String fields) {
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add(ID_FIELD);
+
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!EMPLOYEE_FIELDS.contains(name)) {
+                throw new BadRequestException("Unknown field: " + name + ", selectable fields are " + EMPLOYEE_FIELDS);
+            }
+            selected.add(name);
+        }
+        return List.copyOf(selected);
+    }
+}
@@ -0,0 +1,30 @@
+-- Schema as ddl-auto=update used to create it. Every statement is idempotent so this also runs cleanly
+-- against databases that were set up by hibernate before migrations existed (see spring.flyway.baseline-*)
+
+-- Pooled-lo: each nextval hands hibernate a block of 50 ids, must match allocationSize on Employee
+create sequence if not exists employees_seq start with 1 increment by 50;
+
+create table if not exists employees (
+    employee_id bigint       not null,
+    email       varchar(255) not null,
+    first_name  varchar(255) not null,
+    last_name   varchar(255) not null,
+    version     bigint       default 0 not null,
+    constraint employees_pkey primary key (employee_id)
+);
+
+-- Tables from before optimistic locking have no version column yet
+alter table employees add column if not exists version bigint default 0 not null;
+
+-- Unique email, the constraint name is what the service maps to a 409
+do $$
+begin
+    if not exists (select 1 from pg_constraint where conname = 'uk_employees_email') then
+        alter table employees add constraint uk_employees_email unique (email);
+    end if;
+end
+$$;
+
+-- Never hand out an id that is already taken, e.g. rows written while ids still came from elsewhere
+select setval('employees_seq', (select max(employee_id) + 1 from employees))
+where (select max(employee_id) from employees) >= (select last_value from employees_seq);
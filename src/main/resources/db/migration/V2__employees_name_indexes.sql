@@ -0,0 +1,7 @@
+-- Lookups by first name go through these instead of scanning the table:
+-- (first_name, last_name) serves findByFirstName, findByFirstNameAndLastName and both findByNativeSQL* queries,
+-- (first_name, email) serves findByFirstNameAndEmail. findByEmail uses the uk_employees_email index.
+-- Built concurrently so writes aren't blocked on a large table, flyway runs these outside a transaction
+create index concurrently if not exists idx_employees_first_name_last_name on employees (first_name, last_name);
+
+create index concurrently if not exists idx_employees_first_name_email on employees (first_name, email);
@@ -1,5 +1,7 @@
 package com.TestingTutorials.springboottesting.Data.Repositories;
 
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeePatch;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeeSummary;
 import com.TestingTutorials.springboottesting.Data.Entities.Employee;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.AfterEach;
@@ -9,8 +11,11 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
+import java.util.Map;
 
 @DataJpaTest
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
@@ -171,6 +176,103 @@ class EmployeeRepositoryITest {
 
     }
 
+    //Junit Test for the version guarded patch update
+    @Test
+    public void givenEmployeeVersion_whenPatch_thenOnlyTheFirstWriterWins(){
+
+        // given - preconditions or setup
+        Employee employee1 = employeeRepository.saveAndFlush(Employee.builder()
+                .firstName("Emmanuel")
+                .lastName("Iwu")
+                .email("starcy008@gmail.com")
+                .build());
+        EmployeePatch patch = EmployeePatch.builder().firstName("Coolio").build();
+
+        // when - action or the behaviour that we are going to test
+        int firstWriter = employeeRepository.patch(employee1.getEmployeeId(), employee1.getVersion(), patch);
+        int secondWriter = employeeRepository.patch(employee1.getEmployeeId(), employee1.getVersion(), patch);
+
+        // then - verify the output
+        Assertions.assertThat(employee1.getVersion()).isEqualTo(0L);
+        Assertions.assertThat(firstWriter).isEqualTo(1);
+        Assertions.assertThat(secondWriter).isEqualTo(0);
+    }
+
+    //Junit Test for the set-based bulk delete
+    @Test
+    public void givenEmployeeIds_whenDeleteByEmployeeIds_thenReturnAffectedRows(){
+
+        // given - preconditions or setup
+        Employee employee1 = employeeRepository.save(Employee.builder()
+                .firstName("Emmanuel")
+                .lastName("Iwu")
+                .email("starcy008@gmail.com")
+                .build());
+        Employee employee2 = employeeRepository.save(Employee.builder()
+                .firstName("Angel")
+                .lastName("Sam-Aliyu")
+                .email("angel@gmail.com")
+                .build());
+        employeeRepository.flush();
+
+        // when - action or the behaviour that we are going to test
+        int deleted = employeeRepository.deleteByEmployeeIds(List.of(employee1.getEmployeeId(), -1L));
+
+        // then - verify the output
+        Assertions.assertThat(deleted).isEqualTo(1);
+        Assertions.assertThat(employeeRepository.findAll())
+                .extracting(Employee::getEmployeeId)
+                .containsExactly(employee2.getEmployeeId());
+    }
+
+    //Junit Test for the summary projection query
+    @Test
+    public void givenEmployees_whenFindSummariesAfter_thenReturnIdAndDisplayNameSlice(){
+
+        // given - preconditions or setup
+        Employee employee1 = employeeRepository.save(Employee.builder()
+                .firstName("Emmanuel")
+                .lastName("Iwu")
+                .email("starcy008@gmail.com")
+                .build());
+        employeeRepository.save(Employee.builder()
+                .firstName("Angel")
+                .lastName("Sam-Aliyu")
+                .email("angel@gmail.com")
+                .build());
+        employeeRepository.flush();
+
+        // when - action or the behaviour that we are going to test
+        Slice<EmployeeSummary> summaries = employeeRepository.findSummariesAfter(0L, PageRequest.of(0, 1));
+
+        // then - verify the output
+        Assertions.assertThat(summaries.hasNext()).isTrue();
+        Assertions.assertThat(summaries.getContent()).hasSize(1);
+        Assertions.assertThat(summaries.getContent().get(0).getEmployeeId()).isEqualTo(employee1.getEmployeeId());
+        Assertions.assertThat(summaries.getContent().get(0).getDisplayName()).isEqualTo("Emmanuel Iwu");
+    }
+
+    //Junit Test for the sparse fieldset tuple queries
+    @Test
+    public void givenFieldList_whenFindFields_thenReturnOnlyThoseColumns(){
+
+        // given - preconditions or setup
+        Employee employee1 = employeeRepository.saveAndFlush(Employee.builder()
+                .firstName("Emmanuel")
+                .lastName("Iwu")
+                .email("starcy008@gmail.com")
+                .build());
+
+        // when - action or the behaviour that we are going to test
+        List<Map<String, Object>> rows = employeeRepository.findFieldsAfter(List.of("employeeId", "email"), 0L, 10);
+        Map<String, Object> row = employeeRepository.findFieldsById(List.of("employeeId", "firstName"),
+                employee1.getEmployeeId()).get();
+
+        // then - verify the output
+        Assertions.assertThat(rows).containsExactly(Map.of("employeeId", employee1.getEmployeeId(), "email", "starcy008@gmail.com"));
+        Assertions.assertThat(row).containsOnlyKeys("employeeId", "firstName").containsEntry("firstName", "Emmanuel");
+    }
+
     //Junit Test for custom query using JPQL with index params
     @Test
     @DisplayName("Junit Test for custom query using JPQL with index params")
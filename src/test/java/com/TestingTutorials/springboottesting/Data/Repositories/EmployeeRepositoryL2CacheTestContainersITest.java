@@ -0,0 +1,105 @@
+package com.TestingTutorials.springboottesting.Data.Repositories;
+
+import com.TestingTutorials.springboottesting.BaseIntegration.BaseIntegrationTestContainer;
+import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Runs the repository against the l2cache profile and reads the hibernate statistics
+ * to check that the entity and query caches are actually being hit.
+ * The usual test transaction is switched off because the caches are only filled on commit,
+ * so every repository call here runs (and commits) in its own transaction and persistence context.
+ **/
+@DataJpaTest
+@ActiveProfiles("l2cache")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class EmployeeRepositoryL2CacheTestContainersITest extends BaseIntegrationTestContainer {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private Employee employee;
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository.deleteAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        employee = employeeRepository.save(Employee.builder()
+                .firstName("Emmanuel")
+                .lastName("Iwu")
+                .email("starcy008@gmail.com")
+                .build());
+        statistics.clear();
+    }
+
+    //Junit Test for findById served from the second-level cache
+    @Test
+    @DisplayName("Junit test for findById served from the second-level cache")
+    public void givenSavedEmployee_whenFindById_thenHitSecondLevelCache(){
+
+        // when - action or the behaviour that we are going to test
+        employeeRepository.findById(employee.getEmployeeId());
+
+        // then - verify the output
+        Assertions.assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    //Junit Test for findByEmail served from the query cache
+    @Test
+    @DisplayName("Junit test for findByEmail served from the query cache")
+    public void givenRepeatedLookup_whenFindByEmail_thenHitQueryCache(){
+
+        // given - preconditions or setup
+        employeeRepository.findByEmail(employee.getEmail());
+
+        // when - action or the behaviour that we are going to test
+        Employee cachedEmployee = employeeRepository.findByEmail(employee.getEmail()).get();
+
+        // then - verify the output
+        Assertions.assertThat(cachedEmployee.getEmployeeId()).isEqualTo(employee.getEmployeeId());
+        Assertions.assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+    }
+
+    //Junit Test for the query cache being invalidated by writes
+    @Test
+    @DisplayName("Junit test for the query cache being invalidated on save")
+    public void givenCachedLookup_whenEmployeeSaved_thenQueryCacheMisses(){
+
+        // given - preconditions or setup
+        employeeRepository.findByEmail(employee.getEmail());
+
+        employeeRepository.saveAndFlush(Employee.builder()
+                .firstName("Angel")
+                .lastName("Sam-Aliyu")
+                .email("angel@gmail.com")
+                .build());
+
+        // when - action or the behaviour that we are going to test
+        employeeRepository.findByEmail(employee.getEmail());
+
+        // then - verify the output
+        Assertions.assertThat(statistics.getQueryCacheHitCount()).isZero();
+    }
+}
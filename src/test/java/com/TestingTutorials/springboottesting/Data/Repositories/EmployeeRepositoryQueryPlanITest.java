@@ -0,0 +1,184 @@
+package com.TestingTutorials.springboottesting.Data.Repositories;
+
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeePatch;
+import org.assertj.core.api.Assertions;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * Guards the indexes from the migrations: each repository query is run against a large seeded table, the SQL
+ * hibernate sent is captured and EXPLAINed with the same parameters, and no plan may scan employees sequentially.
+ * The seed rows are written inside the test transaction and rolled back with it. streamAll and streamAllEmails are
+ * left out, they read the whole table on purpose.
+ **/
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.TestingTutorials.springboottesting.Data.Repositories.EmployeeRepositoryQueryPlanITest$CapturingStatementInspector")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class EmployeeRepositoryQueryPlanITest {
+
+    private static final int SEED_ROWS = 100_000;
+
+    // Far above anything the sequence hands out, so seeded ids never collide with real ones
+    private static final long SEED_ID_OFFSET = 1_000_000_000L;
+
+    // Hibernate instantiates this itself, the captured statements are therefore kept in a static list
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        private static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("insert into employees (employee_id, first_name, last_name, email, version) "
+                + "select ? + i, 'first' || i, 'last' || i, 'seed' || i || '@gmail.com', 0 "
+                + "from generate_series(1, ?) as i", SEED_ID_OFFSET, SEED_ROWS);
+        jdbcTemplate.execute("analyze employees");
+    }
+
+    @Test
+    @DisplayName("Junit test for findByEmail using an index")
+    void givenLargeTable_whenFindByEmail_thenNoSequentialScan() {
+        assertNoSequentialScan(() -> employeeRepository.findByEmail("seed42@gmail.com"), "seed42@gmail.com");
+    }
+
+    @Test
+    @DisplayName("Junit test for findByFirstName using an index")
+    void givenLargeTable_whenFindByFirstName_thenNoSequentialScan() {
+        assertNoSequentialScan(() -> employeeRepository.findByFirstName("first42"), "first42");
+    }
+
+    @Test
+    @DisplayName("Junit test for findByFirstNameAndLastName using an index")
+    void givenLargeTable_whenFindByFirstNameAndLastName_thenNoSequentialScan() {
+        assertNoSequentialScan(() -> employeeRepository.findByFirstNameAndLastName("first42", "last42"),
+                "first42", "last42");
+    }
+
+    @Test
+    @DisplayName("Junit test for findByFirstNameAndEmail using an index")
+    void givenLargeTable_whenFindByFirstNameAndEmail_thenNoSequentialScan() {
+        assertNoSequentialScan(() -> employeeRepository.findByFirstNameAndEmail("first42", "seed42@gmail.com"),
+                "first42", "seed42@gmail.com");
+    }
+
+    @Test
+    @DisplayName("Junit test for findByNativeSQL using an index")
+    void givenLargeTable_whenFindByNativeSQL_thenNoSequentialScan() {
+        assertNoSequentialScan(() -> employeeRepository.findByNativeSQL("first42", "last42"), "first42", "last42");
+    }
+
+    @Test
+    @DisplayName("Junit test for findByNativeSQLWithNamedParams using an index")
+    void givenLargeTable_whenFindByNativeSQLWithNamedParams_thenNoSequentialScan() {
+        assertNoSequentialScan(() -> employeeRepository.findByNativeSQLWithNamedParams("first42", "last42"),
+                "first42", "last42");
+    }
+
+    @Test
+    @DisplayName("Junit test for findExistingEmails using an index")
+    void givenLargeTable_whenFindExistingEmails_thenNoSequentialScan() {
+        assertNoSequentialScan(() -> employeeRepository.findExistingEmails(List.of("seed42@gmail.com")),
+                "seed42@gmail.com");
+    }
+
+    @Test
+    @DisplayName("Junit test for the keyset page query using the primary key")
+    void givenLargeTable_whenFindByEmployeeIdGreaterThan_thenNoSequentialScan() {
+        assertNoSequentialScan(() -> employeeRepository.findByEmployeeIdGreaterThan(SEED_ID_OFFSET + 50_000,
+                PageRequest.of(0, 50, Sort.by("employeeId"))),
+                SEED_ID_OFFSET + 50_000, 51);
+    }
+
+    @Test
+    @DisplayName("Junit test for the summary page query using the primary key")
+    void givenLargeTable_whenFindSummariesAfter_thenNoSequentialScan() {
+        assertNoSequentialScan(() -> employeeRepository.findSummariesAfter(SEED_ID_OFFSET + 50_000,
+                PageRequest.of(0, 50)),
+                SEED_ID_OFFSET + 50_000, 51);
+    }
+
+    @Test
+    @DisplayName("Junit test for the warm-up id query reading the primary key backwards")
+    void givenLargeTable_whenFindRecentEmployeeIds_thenNoSequentialScan() {
+        assertNoSequentialScan(() -> employeeRepository.findRecentEmployeeIds(PageRequest.of(0, 1000)), 1000);
+    }
+
+    @Test
+    @DisplayName("Junit test for the sparse fieldset page query using the primary key")
+    void givenLargeTable_whenFindFieldsAfter_thenNoSequentialScan() {
+        assertNoSequentialScan(() -> employeeRepository.findFieldsAfter(List.of("employeeId", "email"),
+                SEED_ID_OFFSET + 50_000, 50),
+                50);
+    }
+
+    @Test
+    @DisplayName("Junit test for the sparse fieldset lookup by id using the primary key")
+    void givenLargeTable_whenFindFieldsById_thenNoSequentialScan() {
+        assertNoSequentialScan(() -> employeeRepository.findFieldsById(List.of("employeeId", "email"),
+                SEED_ID_OFFSET + 42));
+    }
+
+    @Test
+    @DisplayName("Junit test for the version guarded patch using the primary key")
+    void givenLargeTable_whenPatch_thenNoSequentialScan() {
+        assertNoSequentialScan("update", () -> employeeRepository.patch(SEED_ID_OFFSET + 42, 0L,
+                EmployeePatch.builder().firstName("patched").build()),
+                "patched");
+    }
+
+    @Test
+    @DisplayName("Junit test for the bulk delete using the primary key")
+    void givenLargeTable_whenDeleteByEmployeeIds_thenNoSequentialScan() {
+        assertNoSequentialScan("delete", () -> employeeRepository.deleteByEmployeeIds(
+                List.of(SEED_ID_OFFSET + 42, SEED_ID_OFFSET + 43)),
+                SEED_ID_OFFSET + 42, SEED_ID_OFFSET + 43);
+    }
+
+    private void assertNoSequentialScan(Runnable query, Object... parameters) {
+        assertNoSequentialScan("select", query, parameters);
+    }
+
+    // Runs the query so hibernate renders its SQL, then EXPLAINs exactly that statement with the same bind values.
+    // Criteria queries inline their numeric literals, only what is left as a ? is passed. EXPLAIN without ANALYZE
+    // only plans, an update or delete isn't run a second time
+    private void assertNoSequentialScan(String statementType, Runnable query, Object... parameters) {
+        CapturingStatementInspector.statements.clear();
+        query.run();
+
+        String sql = CapturingStatementInspector.statements.stream()
+                .filter(statement -> statement.trim().toLowerCase().startsWith(statementType))
+                .reduce((first, second) -> second)
+                .orElseThrow(() -> new AssertionError("The repository query sent no " + statementType));
+
+        String plan = jdbcTemplate.queryForList("explain " + sql, String.class, parameters).stream()
+                .collect(Collectors.joining("\n"));
+
+        Assertions.assertThat(plan)
+                .as("Plan for %s", sql)
+                .doesNotContain("Seq Scan on employees");
+    }
+}
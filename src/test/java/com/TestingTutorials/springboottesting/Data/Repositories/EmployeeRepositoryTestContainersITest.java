@@ -10,8 +10,13 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @DataJpaTest
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
@@ -260,5 +265,65 @@ class EmployeeRepositoryTestContainersITest extends BaseIntegrationTestContainer
 
     }
 
+    //Junit Test for keyset pagination query
+    @Test
+    @DisplayName("Junit Test for keyset pagination using findByEmployeeIdGreaterThan")
+    public void givenSavedEmployees_whenFindByEmployeeIdGreaterThan_thenReturnNextSlice(){
+
+        // given - preconditions or setup
+        Employee employee1 = employeeRepository.save(Employee.builder()
+                .firstName("Emmanuel")
+                .lastName("Iwu")
+                .email("starcy008@gmail.com")
+                .build());
+
+        Employee employee2 = employeeRepository.save(Employee.builder()
+                .firstName("Angel")
+                .lastName("Sam-Aliyu")
+                .email("angel@gmail.com")
+                .build());
+
+        // when - action or the behaviour that we are going to test
+        Slice<Employee> firstSlice = employeeRepository.findByEmployeeIdGreaterThan(0L,
+                PageRequest.of(0, 1, Sort.by("employeeId")));
+        Slice<Employee> secondSlice = employeeRepository.findByEmployeeIdGreaterThan(employee1.getEmployeeId(),
+                PageRequest.of(0, 1, Sort.by("employeeId")));
+
+        // then - verify the output
+        Assertions.assertThat(firstSlice.getContent()).extracting(Employee::getEmployeeId)
+                .containsExactly(employee1.getEmployeeId());
+        Assertions.assertThat(firstSlice.hasNext()).isTrue();
+        Assertions.assertThat(secondSlice.getContent()).extracting(Employee::getEmployeeId)
+                .containsExactly(employee2.getEmployeeId());
+        Assertions.assertThat(secondSlice.hasNext()).isFalse();
+    }
 
-}
\ No newline at end of file
+    //Junit Test for streaming all employees through a server-side cursor
+    @Test
+    @DisplayName("Junit Test for streamAll employee operation")
+    public void givenSavedEmployees_whenStreamAll_thenReturnEveryEmployeeInIdOrder(){
+
+        // given - preconditions or setup
+        Employee employee1 = employeeRepository.save(Employee.builder()
+                .firstName("Emmanuel")
+                .lastName("Iwu")
+                .email("starcy008@gmail.com")
+                .build());
+
+        Employee employee2 = employeeRepository.save(Employee.builder()
+                .firstName("Angel")
+                .lastName("Sam-Aliyu")
+                .email("angel@gmail.com")
+                .build());
+        employeeRepository.flush();
+
+        // when - action or the behaviour that we are going to test
+        List<Long> streamedIds;
+        try (Stream<Employee> employees = employeeRepository.streamAll(1)) {
+            streamedIds = employees.map(Employee::getEmployeeId).collect(Collectors.toList());
+        }
+
+        // then - verify the output
+        Assertions.assertThat(streamedIds).containsExactly(employee1.getEmployeeId(), employee2.getEmployeeId());
+    }
+}
@@ -13,6 +13,7 @@ import org.mockito.BDDMockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
@@ -61,6 +62,9 @@ public class EmployeeControllerITest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private CacheManager cacheManager;
+
 
     private Employee employee;
     private Employee employee1;
@@ -70,6 +74,9 @@ public class EmployeeControllerITest {
     @BeforeEach
     void cleanup() {
         employeeRepository.deleteAll();
+
+        // deleteAll goes straight to the repository, so drop whatever the service layer has cached
+        cacheManager.getCacheNames().forEach(cacheName -> cacheManager.getCache(cacheName).clear());
     }
 
     @BeforeEach
@@ -12,6 +12,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
@@ -39,6 +40,9 @@ public class EmployeeControllerTestContainersITest extends BaseIntegrationTestCo
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private CacheManager cacheManager;
+
 
     private Employee employee;
     private Employee employee1;
@@ -48,6 +52,9 @@ public class EmployeeControllerTestContainersITest extends BaseIntegrationTestCo
     @BeforeEach
     void cleanup() {
         employeeRepository.deleteAll();
+
+        // deleteAll goes straight to the repository, so drop whatever the service layer has cached
+        cacheManager.getCacheNames().forEach(cacheName -> cacheManager.getCache(cacheName).clear());
     }
 
     @BeforeEach
@@ -0,0 +1,123 @@
+package com.TestingTutorials.springboottesting.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+class BatchLoaderTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private List<List<Long>> batches;
+
+    private Function<List<Long>, Map<Long, String>> batchFunction;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        batches = new CopyOnWriteArrayList<>();
+        // every id except 0 exists
+        batchFunction = ids -> {
+            batches.add(ids);
+            return ids.stream().filter(id -> id != 0L).collect(Collectors.toMap(id -> id, id -> "employee-" + id));
+        };
+    }
+
+    @Test
+    @DisplayName("Junit test for loads of different keys in one window sharing a batch")
+    void givenConcurrentLoadsWithinWindow_whenLoad_thenOneBatchCall() throws Exception {
+
+        // given - preconditions or setup
+        BatchLoader<Long, String> batchLoader = new BatchLoader<>("employees.read.batch", Duration.ofMillis(200), 100,
+                batchFunction, meterRegistry);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // when - action or the behaviour that we are going to test
+        List<Future<Optional<String>>> results = new ArrayList<>();
+        try {
+            for (long id = 0; id < 4; id++) {
+                long employeeId = id;
+                results.add(executor.submit(() -> batchLoader.load(employeeId)));
+            }
+
+            // then - verify the output
+            Assertions.assertThat(results.get(0).get(5, TimeUnit.SECONDS)).isEmpty();
+            Assertions.assertThat(results.get(3).get(5, TimeUnit.SECONDS)).contains("employee-3");
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertThat(batches).hasSize(1);
+        Assertions.assertThat(batches.get(0)).containsExactlyInAnyOrder(0L, 1L, 2L, 3L);
+        Assertions.assertThat(meterRegistry.get("employees.read.batch.size").summary().max()).isEqualTo(4.0);
+        Assertions.assertThat(meterRegistry.get("employees.read.batch.queue").timer().count()).isEqualTo(4L);
+    }
+
+    @Test
+    @DisplayName("Junit test for a full batch going out without waiting for the window")
+    void givenMaxBatchSizeReached_whenLoad_thenDispatchImmediately() {
+
+        // given - preconditions or setup, a window far longer than the test may take
+        BatchLoader<Long, String> batchLoader = new BatchLoader<>("employees.read.batch", Duration.ofMinutes(1), 1,
+                batchFunction, meterRegistry);
+
+        // when - action or the behaviour that we are going to test
+        Optional<String> employee = batchLoader.load(7L);
+
+        // then - verify the output
+        Assertions.assertThat(employee).contains("employee-7");
+        Assertions.assertThat(batches).containsExactly(List.of(7L));
+    }
+
+    @Test
+    @DisplayName("Junit test for a batch closed by its window running on the caller's thread, not the dispatcher")
+    void givenWindowCloses_whenLoad_thenBatchRunsOnCallerThread() {
+
+        // given - preconditions or setup
+        List<String> threads = new CopyOnWriteArrayList<>();
+        BatchLoader<Long, String> batchLoader = new BatchLoader<>("employees.read.batch", Duration.ofMillis(20), 100,
+                ids -> {
+                    threads.add(Thread.currentThread().getName());
+                    return batchFunction.apply(ids);
+                }, meterRegistry);
+
+        // when - action or the behaviour that we are going to test
+        Optional<String> employee = batchLoader.load(7L);
+
+        // then - verify the output
+        Assertions.assertThat(employee).contains("employee-7");
+        Assertions.assertThat(threads).containsExactly(Thread.currentThread().getName());
+        batchLoader.close();
+    }
+
+    @Test
+    @DisplayName("Junit test for loads after close going out on their own")
+    void givenClosedLoader_whenLoad_thenDispatchImmediately() {
+
+        // given - preconditions or setup, a window far longer than the test may take
+        BatchLoader<Long, String> batchLoader = new BatchLoader<>("employees.read.batch", Duration.ofMinutes(1), 100,
+                batchFunction, meterRegistry);
+        batchLoader.close();
+
+        // when - action or the behaviour that we are going to test
+        Optional<String> employee = batchLoader.load(7L);
+
+        // then - verify the output
+        Assertions.assertThat(employee).contains("employee-7");
+        Assertions.assertThat(batches).containsExactly(List.of(7L));
+    }
+}
@@ -0,0 +1,101 @@
+package com.TestingTutorials.springboottesting.cache;
+
+import com.TestingTutorials.springboottesting.Data.Repositories.EmployeeRepository;
+import com.TestingTutorials.springboottesting.config.EmployeeProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+class EmailBloomFilterTest {
+
+    private EmployeeRepository employeeRepository;
+
+    private EmployeeProperties employeeProperties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository = Mockito.mock(EmployeeRepository.class);
+        employeeProperties = new EmployeeProperties();
+        employeeProperties.getEmailFilter().setExpectedInsertions(10_000);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Junit test for the filter answering maybe for everything until it is loaded")
+    void givenFilterNotLoaded_whenMightContain_thenReturnTrue() {
+
+        EmailBloomFilter emailBloomFilter = new EmailBloomFilter(employeeRepository, employeeProperties, meterRegistry);
+
+        Assertions.assertThat(emailBloomFilter.mightContain("starcy008@gmail.com")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Junit test for loaded and newly added emails never being reported as missing")
+    void givenLoadedFilter_whenMightContain_thenNoFalseNegatives() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.streamAllEmails())
+                .willReturn(IntStream.range(0, 5_000).mapToObj(i -> "employee" + i + "@gmail.com"));
+
+        EmailBloomFilter emailBloomFilter = new EmailBloomFilter(employeeRepository, employeeProperties, meterRegistry);
+
+        // when - action or the behaviour that we are going to test
+        emailBloomFilter.load();
+        emailBloomFilter.put("starcy008@gmail.com");
+
+        // then - verify the output
+        Assertions.assertThat(IntStream.range(0, 5_000).allMatch(i -> emailBloomFilter.mightContain("employee" + i + "@gmail.com")))
+                .isTrue();
+        Assertions.assertThat(emailBloomFilter.mightContain("starcy008@gmail.com")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Junit test for the false-positive rate staying near the configured target")
+    void givenLoadedFilter_whenCheckingUnknownEmails_thenFalsePositiveRateNearTarget() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.streamAllEmails())
+                .willReturn(IntStream.range(0, 10_000).mapToObj(i -> "employee" + i + "@gmail.com"));
+
+        EmailBloomFilter emailBloomFilter = new EmailBloomFilter(employeeRepository, employeeProperties, meterRegistry);
+        emailBloomFilter.load();
+
+        // when - action or the behaviour that we are going to test
+        long falsePositives = IntStream.range(0, 10_000)
+                .filter(i -> emailBloomFilter.mightContain("stranger" + i + "@yahoo.com"))
+                .count();
+
+        // then - verify the output
+        Assertions.assertThat(falsePositives / 10_000.0).isLessThan(0.03);
+        Assertions.assertThat(emailBloomFilter.expectedFalsePositiveRate()).isLessThan(0.03);
+        Assertions.assertThat(meterRegistry.get("employees.email.filter.size").gauge().value())
+                .isEqualTo(emailBloomFilter.sizeInBytes());
+    }
+
+    @Test
+    @DisplayName("Junit test for a disabled filter never skipping the database")
+    void givenDisabledFilter_whenMightContain_thenReturnTrue() {
+
+        // given - preconditions or setup
+        employeeProperties.getEmailFilter().setEnabled(false);
+        BDDMockito.given(employeeRepository.streamAllEmails()).willReturn(Stream.empty());
+
+        EmailBloomFilter emailBloomFilter = new EmailBloomFilter(employeeRepository, employeeProperties, meterRegistry);
+
+        // when - action or the behaviour that we are going to test
+        emailBloomFilter.load();
+
+        // then - verify the output
+        Assertions.assertThat(emailBloomFilter.mightContain("starcy008@gmail.com")).isTrue();
+        Mockito.verify(employeeRepository, Mockito.never()).streamAllEmails();
+    }
+}
@@ -0,0 +1,113 @@
+package com.TestingTutorials.springboottesting.cache;
+
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeeLookup;
+import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+import com.TestingTutorials.springboottesting.Data.Repositories.EmployeeRepository;
+import com.TestingTutorials.springboottesting.config.EmployeeProperties;
+import com.TestingTutorials.springboottesting.services.EmployeeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class EmployeeCacheWarmerTest {
+
+    private EmployeeService employeeService;
+
+    private EmployeeRepository employeeRepository;
+
+    private EmployeeResponseCache responseCache;
+
+    private EmployeeProperties employeeProperties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        employeeService = Mockito.mock(EmployeeService.class);
+        employeeRepository = Mockito.mock(EmployeeRepository.class);
+        employeeProperties = new EmployeeProperties();
+        employeeProperties.getWarmup().setParallelism(2);
+        employeeProperties.getWarmup().setIterations(20);
+        meterRegistry = new SimpleMeterRegistry();
+        responseCache = new EmployeeResponseCache(new ObjectMapper(), employeeProperties, meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private EmployeeCacheWarmer warmer() {
+        ObjectProvider<EmployeeInvalidationBus> noBus = Mockito.mock(ObjectProvider.class);
+        return new EmployeeCacheWarmer(employeeService, employeeRepository, responseCache, noBus,
+                employeeProperties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Junit test for the newest employees being preloaded into the read caches")
+    void givenEmployees_whenRun_thenNewestPreloadedInParallelChunks() {
+
+        // given - preconditions or setup
+        Employee employee1 = Employee.builder().employeeId(1L).firstName("Emmanuel").lastName("Iwu")
+                .email("starcy008@gmail.com").version(0L).build();
+        Employee employee2 = Employee.builder().employeeId(2L).firstName("Tom").lastName("Cruise")
+                .email("cruise@gmail.com").version(0L).build();
+        BDDMockito.given(employeeRepository.findRecentEmployeeIds(any(Pageable.class))).willReturn(List.of(2L, 1L));
+        BDDMockito.given(employeeService.getEmployeesByIds(List.of(2L)))
+                .willReturn(new EmployeeLookup(List.of(employee2), List.of()));
+        BDDMockito.given(employeeService.getEmployeesByIds(List.of(1L)))
+                .willReturn(new EmployeeLookup(List.of(employee1), List.of()));
+
+        // when - action or the behaviour that we are going to test
+        warmer().run(null);
+
+        // then - verify the output
+        Assertions.assertThat(responseCache.get(1L)).isNotNull();
+        Assertions.assertThat(responseCache.get(2L)).isNotNull();
+        verify(employeeRepository).findSummariesAfter(any(Long.class), any(Pageable.class));
+        verify(employeeService, Mockito.atLeast(20)).getEmployeeByID(any(Long.class));
+        Assertions.assertThat(meterRegistry.get("employees.warmup").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Junit test for an exhausted budget ending the warm-up without failing startup")
+    void givenZeroBudget_whenRun_thenStopsWithoutThrowing() {
+
+        // given - preconditions or setup
+        employeeProperties.getWarmup().setBudget(Duration.ZERO);
+        BDDMockito.given(employeeRepository.findRecentEmployeeIds(any(Pageable.class))).willReturn(List.of(1L));
+
+        // when - action or the behaviour that we are going to test
+        warmer().run(null);
+
+        // then - verify the output
+        verify(employeeService, never()).getEmployeeByID(any(Long.class));
+    }
+
+    @Test
+    @DisplayName("Junit test for a database failure during warm-up not failing startup")
+    void givenDatabaseDown_whenRun_thenStartsCold() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.findRecentEmployeeIds(any(Pageable.class)))
+                .willThrow(new DataAccessResourceFailureException("connection refused"));
+
+        // when - action or the behaviour that we are going to test
+        warmer().run(null);
+
+        // then - verify the output
+        verify(employeeService, never()).getEmployeesByIds(anyList());
+    }
+}
@@ -0,0 +1,185 @@
+package com.TestingTutorials.springboottesting.cache;
+
+import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+import com.TestingTutorials.springboottesting.config.EmployeeProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.hibernate.Cache;
+import org.mockito.ArgumentCaptor;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class EmployeeInvalidationBusTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private Cache secondLevelCache;
+
+    private EmployeeInvalidationBus invalidationBus;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+        secondLevelCache = Mockito.mock(Cache.class);
+        BDDMockito.given(secondLevelCache.unwrap(Cache.class)).willReturn(secondLevelCache);
+        EntityManagerFactory entityManagerFactory = Mockito.mock(EntityManagerFactory.class);
+        BDDMockito.given(entityManagerFactory.getCache()).willReturn(secondLevelCache);
+        invalidationBus = new EmployeeInvalidationBus(jdbcTemplate, new DataSourceProperties(), new EmployeeProperties(),
+                eventPublisher, entityManagerFactory, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Junit test for a message from another node being applied locally as a remote event")
+    void givenMessageFromOtherNode_whenHandle_thenPublishRemoteEvent() {
+
+        // when - action or the behaviour that we are going to test
+        invalidationBus.handle("other-node:1:SAVED:1,2");
+
+        // then - verify the output
+        EmployeeChangedEvent event = publishedEvent();
+        Assertions.assertThat(event.isRemote()).isTrue();
+        Assertions.assertThat(event.getType()).isEqualTo(EmployeeChangedEvent.Type.SAVED);
+        Assertions.assertThat(event.getEmployeeIds()).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("Junit test for the node ignoring its own messages")
+    void givenOwnMessage_whenHandle_thenNothingPublished() {
+
+        // given - preconditions or setup
+        String payload = invalidationBus.encode(EmployeeChangedEvent.deleted(List.of(1L)));
+
+        // when - action or the behaviour that we are going to test
+        invalidationBus.handle(payload);
+
+        // then - verify the output
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    @DisplayName("Junit test for a received change evicting the employee from Hibernate's second-level cache")
+    void givenMessageFromOtherNode_whenHandle_thenSecondLevelCacheEvicted() {
+
+        // when - action or the behaviour that we are going to test
+        invalidationBus.handle("other-node:1:SAVED:1,2");
+
+        // then - verify the output
+        verify(secondLevelCache).evict(Employee.class, 1L);
+        verify(secondLevelCache).evict(Employee.class, 2L);
+        verify(secondLevelCache).evictQueryRegions();
+    }
+
+    @Test
+    @DisplayName("Junit test for a sequence still missing after the reorder window flushing everything")
+    void givenSequenceGapPastReorderWindow_whenCheckMissing_thenPublishInvalidateAll() {
+
+        // given - preconditions or setup
+        invalidationBus.handle("other-node:1:SAVED:1", 0);
+        invalidationBus.handle("other-node:3:DELETED:2", 0);
+        Mockito.reset(eventPublisher);
+
+        // when - action or the behaviour that we are going to test
+        invalidationBus.checkMissing(Duration.ofSeconds(1).toNanos());
+
+        // then - verify the output
+        EmployeeChangedEvent event = publishedEvent();
+        Assertions.assertThat(event.getType()).isEqualTo(EmployeeChangedEvent.Type.INVALIDATE_ALL);
+        Assertions.assertThat(event.isRemote()).isTrue();
+        verify(secondLevelCache).evict(Employee.class);
+    }
+
+    @Test
+    @DisplayName("Junit test for messages arriving out of order within the reorder window being applied without a flush")
+    void givenReorderedMessages_whenCheckMissing_thenNoFlush() {
+
+        // given - preconditions or setup
+        invalidationBus.handle("other-node:1:SAVED:1", 0);
+        invalidationBus.handle("other-node:3:SAVED:3", 0);
+        invalidationBus.handle("other-node:2:SAVED:2", Duration.ofMillis(20).toNanos());
+
+        // when - action or the behaviour that we are going to test
+        invalidationBus.checkMissing(Duration.ofSeconds(5).toNanos());
+
+        // then - verify the output
+        ArgumentCaptor<EmployeeChangedEvent> events = ArgumentCaptor.forClass(EmployeeChangedEvent.class);
+        verify(eventPublisher, times(3)).publishEvent(events.capture());
+        Assertions.assertThat(events.getAllValues()).extracting(EmployeeChangedEvent::getType)
+                .containsOnly(EmployeeChangedEvent.Type.SAVED);
+    }
+
+    @Test
+    @DisplayName("Junit test for local events being sent with pg_notify and remote ones never sent back out")
+    void givenLocalAndRemoteEvents_whenOnEmployeeChanged_thenOnlyLocalEventNotified() {
+
+        // when - action or the behaviour that we are going to test
+        invalidationBus.onEmployeeChanged(EmployeeChangedEvent.saved(List.of(7L)));
+        invalidationBus.onEmployeeChanged(EmployeeChangedEvent.remote(EmployeeChangedEvent.Type.SAVED, List.of(8L)));
+
+        // then - verify the output
+        ArgumentCaptor<Object> arguments = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate).query(eq("select pg_notify(?, ?)"), any(ResultSetExtractor.class), arguments.capture());
+        Assertions.assertThat(arguments.getAllValues().get(0)).isEqualTo("employee_changes");
+        Assertions.assertThat((String) arguments.getAllValues().get(1)).endsWith(":1:SAVED:7");
+    }
+
+    @Test
+    @DisplayName("Junit test for a failed pg_notify outside a transaction being logged instead of failing the write")
+    void givenNotifyFails_whenOnEmployeeChangedWithoutTransaction_thenNoException() {
+
+        // given - preconditions or setup
+        BDDMockito.given(jdbcTemplate.query(anyString(), any(ResultSetExtractor.class), any(), any()))
+                .willThrow(new DataAccessResourceFailureException("connection refused"));
+
+        // when - action or the behaviour that we are going to test
+        invalidationBus.onEmployeeChanged(EmployeeChangedEvent.saved(List.of(7L)));
+
+        // then - verify the output
+        verify(jdbcTemplate).query(eq("select pg_notify(?, ?)"), any(ResultSetExtractor.class), any(), any());
+    }
+
+    @Test
+    @DisplayName("Junit test for changes too large for one notification going out as INVALIDATE_ALL")
+    void givenTooManyIds_whenEncode_thenInvalidateAll() {
+
+        // given - preconditions or setup
+        List<Long> employeeIds = LongStream.range(1_000_000, 1_002_000).boxed().collect(Collectors.toList());
+
+        // when - action or the behaviour that we are going to test
+        String payload = invalidationBus.encode(EmployeeChangedEvent.deleted(employeeIds));
+
+        // then - verify the output
+        Assertions.assertThat(payload).endsWith(":INVALIDATE_ALL:");
+        Assertions.assertThat(payload.length()).isLessThan(EmployeeInvalidationBus.MAX_PAYLOAD_LENGTH);
+        verify(jdbcTemplate, never()).query(anyString(), any(ResultSetExtractor.class), any(Object[].class));
+    }
+
+    private EmployeeChangedEvent publishedEvent() {
+        ArgumentCaptor<EmployeeChangedEvent> event = ArgumentCaptor.forClass(EmployeeChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        return event.getValue();
+    }
+}
@@ -0,0 +1,283 @@
+package com.TestingTutorials.springboottesting.cache;
+
+import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+import com.TestingTutorials.springboottesting.Data.Repositories.EmployeeRepository;
+import com.TestingTutorials.springboottesting.config.EmployeeProperties;
+import com.TestingTutorials.springboottesting.utils.CursorCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class EmployeeListSnapshotTest {
+
+    private EmployeeRepository employeeRepository;
+
+    private EmployeeProperties employeeProperties;
+
+    private ObjectMapper objectMapper;
+
+    private Employee employee1;
+
+    private Employee employee3;
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository = Mockito.mock(EmployeeRepository.class);
+        employeeProperties = new EmployeeProperties();
+        employeeProperties.getSnapshot().setEnabled(true);
+        objectMapper = new ObjectMapper();
+
+        employee1 = Employee.builder().employeeId(1L).firstName("Emmanuel").lastName("Iwu")
+                .email("starcy008@gmail.com").version(0L).build();
+        employee3 = Employee.builder().employeeId(3L).firstName("Sean").lastName("Kingston")
+                .email("kingston@gmail.com").version(0L).build();
+        BDDMockito.given(employeeRepository.findByEmployeeIdGreaterThan(eq(0L), any(Pageable.class)))
+                .willReturn(new SliceImpl<>(List.of(employee1, employee3)));
+    }
+
+    // Patches run straight away on the calling thread unless a test hands in its own executor
+    private EmployeeListSnapshot listSnapshot() {
+        return listSnapshot(Runnable::run);
+    }
+
+    private EmployeeListSnapshot listSnapshot(Executor patcher) {
+        return new EmployeeListSnapshot(employeeRepository, objectMapper,
+                Mockito.mock(PlatformTransactionManager.class), employeeProperties, new SimpleMeterRegistry(), patcher);
+    }
+
+    @Test
+    @DisplayName("Junit test for the snapshot being loaded once and then served from memory")
+    void givenLoadedSnapshot_whenGetTwice_thenDatabaseReadOnce() throws Exception {
+
+        // given - preconditions or setup
+        EmployeeListSnapshot listSnapshot = listSnapshot();
+
+        // when - action or the behaviour that we are going to test
+        listSnapshot.get();
+        EmployeeListSnapshot.Snapshot snapshot = listSnapshot.get();
+
+        // then - verify the output
+        Assertions.assertThat(snapshot.getEmployees()).containsExactly(employee1, employee3);
+        Assertions.assertThat(snapshot.getNextCursor()).isNull();
+        Assertions.assertThat(new String(snapshot.getBody(), StandardCharsets.UTF_8))
+                .isEqualTo(objectMapper.writeValueAsString(List.of(employee1, employee3)));
+        verify(employeeRepository, times(1)).findByEmployeeIdGreaterThan(eq(0L), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Junit test for a snapshot larger than the row cap handing out a cursor to the rest")
+    void givenMoreEmployeesThanMaxRows_whenGet_thenListCutOffWithNextCursor() {
+
+        // given - preconditions or setup
+        employeeProperties.getList().setMaxRows(1);
+        EmployeeListSnapshot listSnapshot = listSnapshot();
+
+        // when - action or the behaviour that we are going to test
+        EmployeeListSnapshot.Snapshot snapshot = listSnapshot.get();
+
+        // then - verify the output
+        Assertions.assertThat(snapshot.getEmployees()).containsExactly(employee1);
+        Assertions.assertThat(snapshot.getNextCursor()).isEqualTo(CursorCodec.encode(employee1.getEmployeeId()));
+    }
+
+    @Test
+    @DisplayName("Junit test for saves and deletes being patched into the snapshot in id order")
+    void givenLoadedSnapshot_whenEmployeesChange_thenPatchedWithoutReload() throws Exception {
+
+        // given - preconditions or setup
+        EmployeeListSnapshot listSnapshot = listSnapshot();
+        EmployeeListSnapshot.Snapshot before = listSnapshot.get();
+
+        Employee employee2 = Employee.builder().employeeId(2L).firstName("Tom").lastName("Cruise")
+                .email("cruise@gmail.com").version(0L).build();
+        Employee updatedEmployee3 = Employee.builder().employeeId(3L).firstName("Sean").lastName("Paul")
+                .email("kingston@gmail.com").version(1L).build();
+        BDDMockito.given(employeeRepository.findAllById(Set.of(2L, 3L)))
+                .willReturn(List.of(employee2, updatedEmployee3));
+
+        // when - action or the behaviour that we are going to test
+        listSnapshot.onEmployeeChanged(EmployeeChangedEvent.saved(List.of(2L, 3L)));
+        listSnapshot.onEmployeeChanged(EmployeeChangedEvent.deleted(List.of(1L)));
+        EmployeeListSnapshot.Snapshot after = listSnapshot.get();
+
+        // then - verify the output
+        Assertions.assertThat(after.getEmployees()).containsExactly(employee2, updatedEmployee3);
+        Assertions.assertThat(new String(after.getBody(), StandardCharsets.UTF_8))
+                .isEqualTo(objectMapper.writeValueAsString(List.of(employee2, updatedEmployee3)));
+        Assertions.assertThat(before.getEmployees()).containsExactly(employee1, employee3);
+        verify(employeeRepository, times(1)).findByEmployeeIdGreaterThan(eq(0L), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Junit test for every patch giving the snapshot a new version")
+    void givenLoadedSnapshot_whenPatched_thenVersionChanges() {
+
+        // given - preconditions or setup
+        EmployeeListSnapshot listSnapshot = listSnapshot();
+        String loaded = listSnapshot.get().getVersion();
+
+        Employee updatedEmployee3 = Employee.builder().employeeId(3L).firstName("Sean").lastName("Paul")
+                .email("kingston@gmail.com").version(1L).build();
+        BDDMockito.given(employeeRepository.findAllById(Set.of(3L))).willReturn(List.of(updatedEmployee3));
+
+        // when - action or the behaviour that we are going to test
+        listSnapshot.onEmployeeChanged(EmployeeChangedEvent.saved(List.of(3L)));
+        String saved = listSnapshot.get().getVersion();
+        listSnapshot.onEmployeeChanged(EmployeeChangedEvent.deleted(List.of(1L)));
+        String deleted = listSnapshot.get().getVersion();
+
+        // then - verify the output
+        Assertions.assertThat(List.of(loaded, saved, deleted)).doesNotHaveDuplicates();
+    }
+
+    @Test
+    @DisplayName("Junit test for INVALIDATE_ALL dropping the snapshot so the next read reloads it")
+    void givenLoadedSnapshot_whenInvalidateAll_thenNextReadReloads() {
+
+        // given - preconditions or setup
+        EmployeeListSnapshot listSnapshot = listSnapshot();
+        listSnapshot.get();
+
+        // when - action or the behaviour that we are going to test
+        listSnapshot.onEmployeeChanged(EmployeeChangedEvent.invalidateAll());
+        listSnapshot.get();
+
+        // then - verify the output
+        verify(employeeRepository, times(2)).findByEmployeeIdGreaterThan(eq(0L), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Junit test for a table over the size limit not being held")
+    void givenTableOverMaxSize_whenGet_thenReturnNull() {
+
+        // given - preconditions or setup
+        employeeProperties.getSnapshot().setMaxSize(1);
+        EmployeeListSnapshot listSnapshot = listSnapshot();
+
+        // when - action or the behaviour that we are going to test
+        EmployeeListSnapshot.Snapshot snapshot = listSnapshot.get();
+        listSnapshot.get();
+
+        // then - verify the output
+        Assertions.assertThat(snapshot).isNull();
+        verify(employeeRepository, times(1)).findByEmployeeIdGreaterThan(eq(0L), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Junit test for changes being patched off the writing thread and sharing one patch")
+    void givenQueuedChanges_whenPatcherRuns_thenOneReadBackAndOnePatch() {
+
+        // given - preconditions or setup
+        List<Runnable> queued = new ArrayList<>();
+        EmployeeListSnapshot listSnapshot = listSnapshot(queued::add);
+        EmployeeListSnapshot.Snapshot before = listSnapshot.get();
+
+        Employee updatedEmployee3 = Employee.builder().employeeId(3L).firstName("Sean").lastName("Paul")
+                .email("kingston@gmail.com").version(1L).build();
+        BDDMockito.given(employeeRepository.findAllById(Set.of(3L))).willReturn(List.of(updatedEmployee3));
+
+        // when - action or the behaviour that we are going to test
+        listSnapshot.onEmployeeChanged(EmployeeChangedEvent.saved(List.of(3L)));
+        listSnapshot.onEmployeeChanged(EmployeeChangedEvent.deleted(List.of(1L)));
+        EmployeeListSnapshot.Snapshot unpatched = listSnapshot.get();
+        queued.forEach(Runnable::run);
+        EmployeeListSnapshot.Snapshot patched = listSnapshot.get();
+
+        // then - verify the output
+        Assertions.assertThat(queued).hasSize(1);
+        Assertions.assertThat(unpatched).isSameAs(before);
+        Assertions.assertThat(patched.getEmployees()).containsExactly(updatedEmployee3);
+        verify(employeeRepository, times(1)).findAllById(Set.of(3L));
+    }
+
+    @Test
+    @DisplayName("Junit test for a change committed during a load keeping that load from being held")
+    void givenChangeDuringLoad_whenGet_thenNextReadLoadsAgain() {
+
+        // given - preconditions or setup
+        List<Runnable> queued = new ArrayList<>();
+        EmployeeListSnapshot listSnapshot = listSnapshot(queued::add);
+        BDDMockito.given(employeeRepository.findByEmployeeIdGreaterThan(eq(0L), any(Pageable.class)))
+                .willAnswer(invocation -> {
+                    listSnapshot.onEmployeeChanged(EmployeeChangedEvent.saved(List.of(2L)));
+                    return new SliceImpl<>(List.of(employee1, employee3));
+                })
+                .willReturn(new SliceImpl<>(List.of(employee1, employee3)));
+
+        // when - action or the behaviour that we are going to test
+        EmployeeListSnapshot.Snapshot raced = listSnapshot.get();
+        queued.forEach(Runnable::run);
+        listSnapshot.get();
+
+        // then - verify the output
+        Assertions.assertThat(raced.getEmployees()).containsExactly(employee1, employee3);
+        verify(employeeRepository, times(2)).findByEmployeeIdGreaterThan(eq(0L), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Junit test for deletes on a table still over the size limit only re-checking the size")
+    void givenTableOverMaxSize_whenDeleteLeavesItTooLarge_thenNotLoadedAgain() {
+
+        // given - preconditions or setup
+        employeeProperties.getSnapshot().setMaxSize(1);
+        EmployeeListSnapshot listSnapshot = listSnapshot();
+        listSnapshot.get();
+
+        // when - action or the behaviour that we are going to test
+        listSnapshot.onEmployeeChanged(EmployeeChangedEvent.deleted(List.of(7L)));
+        EmployeeListSnapshot.Snapshot snapshot = listSnapshot.get();
+
+        // then - verify the output
+        Assertions.assertThat(snapshot).isNull();
+        verify(employeeRepository, times(1))
+                .findByEmployeeIdGreaterThan(0L, PageRequest.of(0, 2, Sort.by("employeeId")));
+        verify(employeeRepository, times(1))
+                .findByEmployeeIdGreaterThan(0L, PageRequest.of(1, 1, Sort.by("employeeId")));
+    }
+
+    @Test
+    @DisplayName("Junit test for the snapshot being tried again once deletes brought the table under the limit")
+    void givenTableOverMaxSize_whenDeleteMakesItFit_thenLoadedAgain() {
+
+        // given - preconditions or setup
+        employeeProperties.getSnapshot().setMaxSize(1);
+        EmployeeListSnapshot listSnapshot = listSnapshot();
+        listSnapshot.get();
+        PageRequest sizeCheck = PageRequest.of(1, 1, Sort.by("employeeId"));
+        PageRequest fullLoad = PageRequest.of(0, 2, Sort.by("employeeId"));
+        BDDMockito.given(employeeRepository.findByEmployeeIdGreaterThan(0L, sizeCheck))
+                .willReturn(new SliceImpl<>(List.of()));
+        BDDMockito.given(employeeRepository.findByEmployeeIdGreaterThan(0L, fullLoad))
+                .willReturn(new SliceImpl<>(List.of(employee3)));
+
+        // when - action or the behaviour that we are going to test
+        listSnapshot.onEmployeeChanged(EmployeeChangedEvent.deleted(List.of(1L)));
+        EmployeeListSnapshot.Snapshot snapshot = listSnapshot.get();
+
+        // then - verify the output
+        Assertions.assertThat(snapshot.getEmployees()).containsExactly(employee3);
+        verify(employeeRepository, never()).findAllById(any());
+    }
+}
@@ -0,0 +1,80 @@
+package com.TestingTutorials.springboottesting.cache;
+
+import com.TestingTutorials.springboottesting.config.EmployeeProperties;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class ReactiveEmployeeChangesTest {
+
+    private DatabaseClient.GenericExecuteSpec notifySpec;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private ReactiveEmployeeChanges employeeChanges;
+
+    @BeforeEach
+    void setUp() {
+        DatabaseClient databaseClient = Mockito.mock(DatabaseClient.class);
+        notifySpec = Mockito.mock(DatabaseClient.GenericExecuteSpec.class);
+        BDDMockito.given(databaseClient.sql(anyString())).willReturn(notifySpec);
+        BDDMockito.given(notifySpec.bind(anyString(), any())).willReturn(notifySpec);
+        BDDMockito.given(notifySpec.then()).willReturn(Mono.empty());
+        eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+
+        EmployeeProperties employeeProperties = new EmployeeProperties();
+        employeeProperties.getInvalidationBus().setEnabled(true);
+        // Runs the write as it is, there is no database to hold a transaction
+        TransactionalOperator transactionalOperator = Mockito.mock(TransactionalOperator.class);
+        BDDMockito.given(transactionalOperator.transactional(any(Mono.class)))
+                .willAnswer(invocation -> invocation.getArgument(0));
+        employeeChanges = new ReactiveEmployeeChanges(databaseClient, transactionalOperator, eventPublisher,
+                employeeProperties);
+    }
+
+    @Test
+    @DisplayName("Junit test for a reactive write sending pg_notify in the bus format and publishing its event")
+    void givenWrite_whenWrite_thenNotifiedAndPublished() {
+
+        // when - action or the behaviour that we are going to test
+        Long employeeId = employeeChanges.write(Mono.just(7L), id -> EmployeeChangedEvent.saved(List.of(id))).block();
+
+        // then - verify the output
+        Assertions.assertThat(employeeId).isEqualTo(7L);
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(notifySpec).bind(eq("channel"), eq("employee_changes"));
+        verify(notifySpec).bind(eq("payload"), payload.capture());
+        Assertions.assertThat((String) payload.getValue()).endsWith(":1:SAVED:7");
+        verify(eventPublisher).publishEvent(any(EmployeeChangedEvent.class));
+    }
+
+    @Test
+    @DisplayName("Junit test for a failed reactive write neither notifying nor publishing")
+    void givenFailingWrite_whenWrite_thenNothingSent() {
+
+        // when - action or the behaviour that we are going to test
+        Mono<Long> write = employeeChanges.write(Mono.error(new IllegalStateException("database down")),
+                id -> EmployeeChangedEvent.saved(List.of(id)));
+
+        // then - verify the output
+        Assertions.assertThatThrownBy(write::block).isInstanceOf(IllegalStateException.class);
+        verify(notifySpec, never()).then();
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+}
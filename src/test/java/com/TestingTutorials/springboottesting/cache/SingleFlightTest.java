@@ -0,0 +1,123 @@
+package com.TestingTutorials.springboottesting.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private SingleFlight<Long, String> singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight<>("employees.lookup", meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Junit test for concurrent loads of one key sharing a single call")
+    void givenConcurrentCallsForOneKey_whenLoad_thenLoaderRunsOnce() throws Exception {
+
+        // given - preconditions or setup
+        int callers = 8;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+
+        // when - action or the behaviour that we are going to test
+        List<Future<String>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> singleFlight.load(1L, () -> {
+                    loads.incrementAndGet();
+                    awaitQuietly(release);
+                    return "Emmanuel";
+                })));
+            }
+            // let every caller reach the in-flight call before the leader finishes
+            while (meterRegistry.counter("employees.lookup.calls", "result", "coalesced").count() < callers - 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            // then - verify the output
+            for (Future<String> result : results) {
+                Assertions.assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("Emmanuel");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertThat(loads.get()).isEqualTo(1);
+        Assertions.assertThat(meterRegistry.counter("employees.lookup.calls", "result", "loaded").count()).isEqualTo(1.0);
+        Assertions.assertThat(meterRegistry.get("employees.lookup.inflight").gauge().value()).isEqualTo(0.0);
+    }
+
+    @Test
+    @DisplayName("Junit test for a failed load not being remembered")
+    void givenFailingLoader_whenLoadAgain_thenLoaderRunsAgain() {
+
+        // given - preconditions or setup
+        assertThrows(IllegalStateException.class, () -> singleFlight.load(1L, () -> {
+            throw new IllegalStateException("database down");
+        }));
+
+        // when - action or the behaviour that we are going to test
+        String value = singleFlight.load(1L, () -> "Emmanuel");
+
+        // then - verify the output
+        Assertions.assertThat(value).isEqualTo("Emmanuel");
+    }
+
+    @Test
+    @DisplayName("Junit test for a caller with a newer invalidation stamp not joining a load started before it")
+    void givenLoadInFlightUnderOlderStamp_whenLoadWithNewerStamp_thenLoaderRunsAgain() throws Exception {
+
+        // given - preconditions or setup
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<String> staleLoad = executor.submit(() -> singleFlight.load(1L, 1L, () -> {
+                started.countDown();
+                awaitQuietly(release);
+                return "Emmanuel";
+            }));
+            started.await(5, TimeUnit.SECONDS);
+
+            // when - action or the behaviour that we are going to test
+            String value = singleFlight.load(1L, 2L, () -> "Clark");
+            release.countDown();
+
+            // then - verify the output
+            Assertions.assertThat(value).isEqualTo("Clark");
+            Assertions.assertThat(staleLoad.get(5, TimeUnit.SECONDS)).isEqualTo("Emmanuel");
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertThat(meterRegistry.counter("employees.lookup.calls", "result", "coalesced").count()).isEqualTo(0.0);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.TestingTutorials.springboottesting.config;
+
+import com.TestingTutorials.springboottesting.cache.EmployeeChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.servlet.http.Cookie;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private DataSource primary;
+
+    private DataSource replica1;
+
+    private DataSource replica2;
+
+    private Connection primaryConnection;
+
+    private Connection replica1Connection;
+
+    private Connection replica2Connection;
+
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = Mockito.mock(DataSource.class);
+        replica1 = Mockito.mock(DataSource.class);
+        replica2 = Mockito.mock(DataSource.class);
+        primaryConnection = Mockito.mock(Connection.class);
+        replica1Connection = Mockito.mock(Connection.class);
+        replica2Connection = Mockito.mock(Connection.class);
+        BDDMockito.given(primary.getConnection()).willReturn(primaryConnection);
+        BDDMockito.given(replica1.getConnection()).willReturn(replica1Connection);
+        BDDMockito.given(replica2.getConnection()).willReturn(replica2Connection);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", replica1);
+        replicas.put("replica-1", replica2);
+        // Health checks are triggered by hand in these tests
+        routingDataSource = new ReadWriteRoutingDataSource(primary, replicas, Duration.ofHours(1),
+                Duration.ofMinutes(1), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReadWriteRoutingDataSource.pinToPrimary(false);
+        routingDataSource.close();
+    }
+
+    @Test
+    @DisplayName("Junit test for read-only transactions being balanced over the replicas")
+    void givenReadOnlyTransaction_whenGetConnection_thenReplicasRoundRobin() throws SQLException {
+
+        // given - preconditions or setup
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // when - action or the behaviour that we are going to test
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            connections.add(routingDataSource.getConnection());
+        }
+
+        // then - verify the output
+        Assertions.assertThat(connections)
+                .containsExactly(replica1Connection, replica2Connection, replica1Connection, replica2Connection);
+    }
+
+    @Test
+    @DisplayName("Junit test for explicit credentials being passed to the chosen target")
+    void givenCredentials_whenGetConnection_thenDelegatedToChosenTarget() throws SQLException {
+
+        // given - preconditions or setup
+        Connection replicaAsUser = Mockito.mock(Connection.class);
+        Connection primaryAsUser = Mockito.mock(Connection.class);
+        BDDMockito.given(replica1.getConnection("reporting", "secret")).willReturn(replicaAsUser);
+        BDDMockito.given(primary.getConnection("reporting", "secret")).willReturn(primaryAsUser);
+
+        // when - action or the behaviour that we are going to test
+        Connection write = routingDataSource.getConnection("reporting", "secret");
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Connection read = routingDataSource.getConnection("reporting", "secret");
+
+        // then - verify the output
+        Assertions.assertThat(write).isSameAs(primaryAsUser);
+        Assertions.assertThat(read).isSameAs(replicaAsUser);
+    }
+
+    @Test
+    @DisplayName("Junit test for writes always using the primary")
+    void givenReadWriteTransaction_whenGetConnection_thenPrimary() throws SQLException {
+
+        // given - preconditions or setup
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+
+        // when - action or the behaviour that we are going to test
+        Connection connection = routingDataSource.getConnection();
+
+        // then - verify the output
+        Assertions.assertThat(connection).isSameAs(primaryConnection);
+    }
+
+    @Test
+    @DisplayName("Junit test for a failing replica being ejected and re-admitted by the health check")
+    void givenFailingReplica_whenGetConnection_thenEjectedUntilHealthy() throws SQLException {
+
+        // given - preconditions or setup
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        BDDMockito.given(replica1.getConnection()).willThrow(new SQLException("connection refused"));
+
+        // when - action or the behaviour that we are going to test
+        Connection fallback = routingDataSource.getConnection();
+        Connection next = routingDataSource.getConnection();
+        Connection afterNext = routingDataSource.getConnection();
+
+        BDDMockito.willReturn(replica1Connection).given(replica1).getConnection();
+        BDDMockito.given(replica1Connection.isValid(anyInt())).willReturn(true);
+        BDDMockito.given(replica2Connection.isValid(anyInt())).willReturn(true);
+        routingDataSource.checkReplicas();
+        List<Connection> readmitted = List.of(routingDataSource.getConnection(), routingDataSource.getConnection());
+
+        // then - verify the output
+        Assertions.assertThat(fallback).isSameAs(primaryConnection);
+        Assertions.assertThat(next).isSameAs(replica2Connection);
+        Assertions.assertThat(afterNext).isSameAs(replica2Connection);
+        Assertions.assertThat(readmitted).contains(replica1Connection);
+    }
+
+    @Test
+    @DisplayName("Junit test for pinned requests and recent changes reading from the primary")
+    void givenPinnedOrRecentChange_whenGetConnection_thenPrimary() throws SQLException {
+
+        // given - preconditions or setup
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // when - action or the behaviour that we are going to test
+        ReadWriteRoutingDataSource.pinToPrimary(true);
+        Connection pinned = routingDataSource.getConnection();
+        ReadWriteRoutingDataSource.pinToPrimary(false);
+
+        routingDataSource.onEmployeeChanged(EmployeeChangedEvent.saved(List.of(1L)));
+        Connection afterChange = routingDataSource.getConnection();
+
+        // then - verify the output
+        Assertions.assertThat(pinned).isSameAs(primaryConnection);
+        Assertions.assertThat(afterChange).isSameAs(primaryConnection);
+    }
+
+    @Test
+    @DisplayName("Junit test for a write request pinning the client to the primary for the stickiness window")
+    void givenWriteRequest_whenNextRead_thenPinnedToPrimary() throws Exception {
+
+        // given - preconditions or setup
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(5));
+        MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("PUT", "/api/employees/1"), writeResponse, (req, res) -> { });
+        Cookie cookie = writeResponse.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+
+        MockHttpServletRequest read = new MockHttpServletRequest("GET", "/api/employees/1");
+        read.setCookies(cookie);
+        MockHttpServletRequest forged = new MockHttpServletRequest("GET", "/api/employees/1");
+        forged.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, Long.toString(Long.MAX_VALUE)));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // when - action or the behaviour that we are going to test
+        List<Connection> connections = new ArrayList<>();
+        filter.doFilter(read, new MockHttpServletResponse(),
+                (req, res) -> connections.add(connection()));
+        filter.doFilter(forged, new MockHttpServletResponse(),
+                (req, res) -> connections.add(connection()));
+        connections.add(routingDataSource.getConnection());
+
+        // then - verify the output
+        Assertions.assertThat(cookie).isNotNull();
+        Assertions.assertThat(connections).containsExactly(primaryConnection, replica1Connection, replica2Connection);
+    }
+
+    // FilterChain can't throw SQLException
+    private Connection connection() {
+        try {
+            return routingDataSource.getConnection();
+        } catch (SQLException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -1,9 +1,22 @@
 package com.TestingTutorials.springboottesting.controllers;
 
+import com.TestingTutorials.springboottesting.Data.Dtos.CursorPage;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeeLookup;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeePatch;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeeSummary;
 import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+import com.TestingTutorials.springboottesting.cache.EmployeeChangedEvent;
+import com.TestingTutorials.springboottesting.cache.EmployeeListSnapshot;
+import com.TestingTutorials.springboottesting.cache.EmployeeResponseCache;
+import com.TestingTutorials.springboottesting.cache.EmployeeTableVersion;
+import com.TestingTutorials.springboottesting.config.EmployeeProperties;
+import com.TestingTutorials.springboottesting.Data.Repositories.EmployeeRepository;
 import com.TestingTutorials.springboottesting.services.EmployeeService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.hamcrest.CoreMatchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -11,26 +24,39 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatcher;
 import org.mockito.ArgumentMatchers;
 import org.mockito.BDDMockito;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 
 
 @WebMvcTest
+@Import({EmployeeResponseCache.class, EmployeeTableVersion.class, SimpleMeterRegistry.class})
+@EnableConfigurationProperties(EmployeeProperties.class)
 class EmployeeControllerTest {
 
     /**
@@ -66,6 +92,16 @@ class EmployeeControllerTest {
     @MockBean
     private EmployeeService employeeService;
 
+    // Returns null unless a test hands it a snapshot, the list then comes from the service as usual
+    @MockBean
+    private EmployeeListSnapshot employeeListSnapshot;
+
+    @Autowired
+    private EmployeeResponseCache employeeResponseCache;
+
+    @Autowired
+    private EmployeeTableVersion employeeTableVersion;
+
     private  Employee employee;
     private  Employee employee1;
     private  Employee employee2;
@@ -75,12 +111,16 @@ class EmployeeControllerTest {
     @BeforeEach
     void setUp() {
 
+        // The response cache outlives a single test, start each one empty
+        employeeResponseCache.onEmployeeChanged(EmployeeChangedEvent.invalidateAll());
+
         // Setup frequently/commonly used instances or configs
         employee = Employee.builder()
                 .employeeId(1L)
                 .firstName("Emmanuel")
                 .lastName("Iwu")
                 .email("iwuemmanuel64@gmail.com")
+                .version(3L)
                 .build();
         employee1 = Employee.builder()
                 .firstName("Ihab")
@@ -134,12 +174,31 @@ class EmployeeControllerTest {
                         CoreMatchers.is(employee.getEmail())));
     }
 
+    @Test
+    @DisplayName(" Junit test case for batch createEmployees REST API ")
+    void givenListOfEmployees_whenCreateEmployees_thenReturnNewEmployees() throws Exception {
+
+        // Given --> Precondition and setup
+        BDDMockito.given(employeeService.saveNewEmployees(ArgumentMatchers.anyList()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        // When the action request call is made
+        ResultActions postRequestResult = mockMvc.perform(post("/api/employees/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(listOfEmployees)));
+
+        // Then Verify the output
+        postRequestResult.andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()",
+                        CoreMatchers.is(listOfEmployees.size())));
+    }
+
     @Test
     @DisplayName(" Junit test case for getAllEmployees REST API ")
     void givenListOfEmployees_whenGetAllEmployees_thenReturnListOfEmployees() throws Exception {
 
         // Given --> Precondition and setup
-        BDDMockito.given(employeeService.getAllEmloyees()).willReturn(listOfEmployees);
+        BDDMockito.given(employeeService.getAllEmloyees()).willReturn(new CursorPage<>(listOfEmployees, null, false));
 
         // When the action request call is made
         ResultActions responseList = mockMvc.perform(get("/api/employees/getAllEmployees"));
@@ -148,7 +207,203 @@ class EmployeeControllerTest {
         responseList.andDo(MockMvcResultHandlers.print())
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$.size()",
-                        CoreMatchers.is(listOfEmployees.size())));
+                        CoreMatchers.is(listOfEmployees.size())))
+                .andExpect(MockMvcResultMatchers.header().doesNotExist(EmployeeController.TRUNCATED_HEADER))
+                .andExpect(MockMvcResultMatchers.header().doesNotExist(HttpHeaders.LINK));
+    }
+
+    @Test
+    @DisplayName(" Junit test case for getAllEmployees cut off at the row cap ")
+    void givenMoreEmployeesThanMaxRows_whenGetAllEmployees_thenTruncatedWithNextLink() throws Exception {
+
+        // Given --> Precondition and setup
+        BDDMockito.given(employeeService.getAllEmloyees())
+                .willReturn(new CursorPage<>(listOfEmployees, "MTA", true));
+
+        // When the action request call is made
+        ResultActions responseList = mockMvc.perform(get("/api/employees/getAllEmployees"));
+
+        // Then Verify the output, the rows sent are unchanged and the headers point at the rest
+        responseList.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()", CoreMatchers.is(listOfEmployees.size())))
+                .andExpect(MockMvcResultMatchers.header().string(EmployeeController.TRUNCATED_HEADER, "true"))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.LINK,
+                        "</api/employees/page?cursor=MTA>; rel=\"next\""));
+    }
+
+    @Test
+    @DisplayName(" Junit test case for a sparse fieldset list cut off at the row cap ")
+    void givenMoreEmployeesThanMaxRows_whenGetAllEmployeeFields_thenNextLinkKeepsFields() throws Exception {
+
+        // Given --> Precondition and setup
+        BDDMockito.given(employeeService.getAllEmployeeFields("email"))
+                .willReturn(new CursorPage<>(List.of(Map.of("employeeId", 1L, "email", employee.getEmail())),
+                        "MQ", true));
+
+        // When the action request call is made
+        ResultActions responseList = mockMvc.perform(get("/api/employees/getAllEmployees").param("fields", "email"));
+
+        // Then Verify the output
+        responseList.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(EmployeeController.TRUNCATED_HEADER, "true"))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.LINK,
+                        "</api/employees/page?fields=email&cursor=MQ>; rel=\"next\""));
+    }
+
+    @Test
+    @DisplayName(" Junit test case for conditional getAllEmployees REST API ")
+    void givenMatchingListETag_whenGetAllEmployees_thenReturnNotModifiedUntilTableChanges() throws Exception {
+
+        // Given --> Precondition and setup
+        BDDMockito.given(employeeService.getAllEmloyees()).willReturn(new CursorPage<>(listOfEmployees, null, false));
+        String eTag = mockMvc.perform(get("/api/employees/getAllEmployees"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When the action request call is made
+        ResultActions responseList = mockMvc.perform(get("/api/employees/getAllEmployees")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag));
+
+        // Then Verify the output, the list is not loaded again
+        responseList.andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(MockMvcResultMatchers.content().string(""));
+        BDDMockito.then(employeeService).should(Mockito.times(1)).getAllEmloyees();
+
+        // and a committed write makes the old tag stale
+        employeeTableVersion.onEmployeeChanged(EmployeeChangedEvent.saved(List.of(employee.getEmployeeId())));
+        mockMvc.perform(get("/api/employees/getAllEmployees").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        BDDMockito.then(employeeService).should(Mockito.times(2)).getAllEmloyees();
+    }
+
+    @Test
+    @DisplayName(" Junit test case for getAllEmployees served from the list snapshot ")
+    void givenListSnapshot_whenGetAllEmployees_thenReturnSnapshotBodyWithoutService() throws Exception {
+
+        // Given --> Precondition and setup
+        EmployeeRepository employeeRepository = Mockito.mock(EmployeeRepository.class);
+        BDDMockito.given(employeeRepository.findByEmployeeIdGreaterThan(eq(0L), any(Pageable.class)))
+                .willReturn(new SliceImpl<>(listOfEmployees));
+        EmployeeProperties employeeProperties = new EmployeeProperties();
+        employeeProperties.getSnapshot().setEnabled(true);
+        EmployeeListSnapshot.Snapshot snapshot = new EmployeeListSnapshot(employeeRepository,
+                objectMapper, Mockito.mock(PlatformTransactionManager.class), employeeProperties, new SimpleMeterRegistry()).get();
+        BDDMockito.given(employeeListSnapshot.get()).willReturn(snapshot);
+
+        // When the action request call is made
+        ResultActions responseList = mockMvc.perform(get("/api/employees/getAllEmployees"));
+
+        // Then Verify the output
+        responseList.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.content().json(objectMapper.writeValueAsString(listOfEmployees)))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG,
+                        "\"snapshot-" + snapshot.getVersion() + "\""));
+        BDDMockito.then(employeeService).should(Mockito.never()).getAllEmloyees();
+    }
+
+    @Test
+    @DisplayName(" Junit test case for keyset paginated getEmployeesPage REST API ")
+    void givenCursorAndSize_whenGetEmployeesPage_thenReturnSliceWithNextCursor() throws Exception {
+
+        // Given --> Precondition and setup
+        BDDMockito.given(employeeService.getEmployeesPage("abc", 3))
+                .willReturn(new CursorPage<>(listOfEmployees, "next", true));
+
+        // When the action request call is made
+        ResultActions responsePage = mockMvc.perform(get("/api/employees/page")
+                .param("cursor", "abc")
+                .param("size", "3"));
+
+        // Then Verify the output
+        responsePage.andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content.size()",
+                        CoreMatchers.is(listOfEmployees.size())))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor", CoreMatchers.is("next")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.hasNext", CoreMatchers.is(true)));
+    }
+
+    @Test
+    @DisplayName(" Junit test case for getEmployeeSummaries REST API ")
+    void givenSummaries_whenGetEmployeeSummaries_thenReturnIdAndDisplayNameOnly() throws Exception {
+
+        // Given --> Precondition and setup
+        BDDMockito.given(employeeService.getEmployeeSummariesPage(null, null))
+                .willReturn(new CursorPage<>(List.of(new EmployeeSummary(1L, "Emmanuel Iwu")), null, false));
+
+        // When the action request call is made
+        ResultActions responsePage = mockMvc.perform(get("/api/employees/summaries"));
+
+        // Then Verify the output
+        responsePage.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].displayName", CoreMatchers.is("Emmanuel Iwu")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].email").doesNotExist())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.hasNext", CoreMatchers.is(false)));
+    }
+
+    @Test
+    @DisplayName(" Junit test case for getAllEmployees with a sparse fieldset ")
+    void givenFieldsParam_whenGetAllEmployees_thenReturnOnlySelectedFields() throws Exception {
+
+        // Given --> Precondition and setup
+        BDDMockito.given(employeeService.getAllEmployeeFields("email"))
+                .willReturn(new CursorPage<>(List.of(Map.of("employeeId", 1L, "email", employee.getEmail())),
+                        null, false));
+
+        // When the action request call is made
+        ResultActions responseList = mockMvc.perform(get("/api/employees/getAllEmployees").param("fields", "email"));
+
+        // Then Verify the output
+        responseList.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].email", CoreMatchers.is(employee.getEmail())))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].firstName").doesNotExist());
+        BDDMockito.then(employeeService).should(Mockito.never()).getAllEmloyees();
+    }
+
+    @Test
+    @DisplayName(" Junit test case for multi-get getEmployeesByIds REST API ")
+    void givenIdsParam_whenGetEmployeesByIds_thenReturnFoundAndMissing() throws Exception {
+
+        // Given --> Precondition and setup
+        BDDMockito.given(employeeService.getEmployeesByIds(List.of(1L, 7L)))
+                .willReturn(new EmployeeLookup(List.of(employee), List.of(7L)));
+
+        // When the action request call is made
+        ResultActions responseLookup = mockMvc.perform(get("/api/employees").param("ids", "1,7"));
+
+        // Then Verify the output
+        responseLookup.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.employees[0].email", CoreMatchers.is(employee.getEmail())))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.missingIds[0]", CoreMatchers.is(7)));
+        BDDMockito.then(employeeService).should(Mockito.never()).getEmployeeByID(any());
+    }
+
+    @Test
+    @DisplayName(" Junit test case for NDJSON exportEmployees REST API ")
+    void givenListOfEmployees_whenExportEmployees_thenStreamOneJsonDocumentPerLine() throws Exception {
+
+        // Given --> Precondition and setup
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<Employee> action = invocation.getArgument(0);
+            listOfEmployees.forEach(action);
+            return null;
+        }).given(employeeService).streamAllEmployees(any());
+
+        // When the action request call is made, the body is written asynchronously
+        MvcResult asyncResult = mockMvc.perform(get("/api/employees/export"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        // Then Verify the output
+        String body = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(listOfEmployees.size(), lines.length);
+        assertEquals(employee.getEmail(), objectMapper.readValue(lines[0], Employee.class).getEmail());
     }
 
     //Junit Test for Valid case of getEmployeeById REST API
@@ -176,6 +431,123 @@ class EmployeeControllerTest {
 
     }
 
+    //Junit Test for repeated getEmployeeById REST API calls served from the response cache
+    @Test
+    @DisplayName("Junit Test for repeated getEmployeeById served from pre-serialized bytes")
+    public void givenCachedResponse_whenGetEmployeeByIdAgain_thenServiceNotCalled() throws Exception{
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeService.getEmployeeByID(employee.getEmployeeId())).willReturn(Optional.of(employee));
+        mockMvc.perform(get("/api/employees/{id}", employee.getEmployeeId()));
+
+        // when - action or the behaviour that we are going to test
+        ResultActions responseObject = mockMvc.perform(get("/api/employees/{id}", employee.getEmployeeId()));
+
+        // then - verify the output
+        responseObject.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.email",
+                        CoreMatchers.is(employee.getEmail())));
+        BDDMockito.then(employeeService).should(Mockito.times(1)).getEmployeeByID(employee.getEmployeeId());
+
+        // and a change event drops the cached bytes
+        employeeResponseCache.onEmployeeChanged(EmployeeChangedEvent.saved(List.of(employee.getEmployeeId())));
+        mockMvc.perform(get("/api/employees/{id}", employee.getEmployeeId()));
+        BDDMockito.then(employeeService).should(Mockito.times(2)).getEmployeeByID(employee.getEmployeeId());
+    }
+
+    //Junit Test for conditional getEmployeeById REST API calls
+    @Test
+    @DisplayName("Junit Test for getEmployeeById answering a matching If-None-Match with 304")
+    public void givenMatchingVersionETag_whenGetEmployeeById_thenReturnNotModified() throws Exception{
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeService.getEmployeeByID(employee.getEmployeeId())).willReturn(Optional.of(employee));
+
+        // when - action or the behaviour that we are going to test
+        ResultActions responseObject = mockMvc.perform(get("/api/employees/{id}", employee.getEmployeeId())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\""));
+
+        // then - verify the output, nothing was serialized or cached
+        responseObject.andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(MockMvcResultMatchers.content().string(""));
+        assertNull(employeeResponseCache.get(employee.getEmployeeId()));
+
+        // and a stale tag gets the full body with the current tag
+        mockMvc.perform(get("/api/employees/{id}", employee.getEmployeeId()).header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.version", CoreMatchers.is(3)));
+    }
+
+    //Junit Test for getEmployeeById ETags per representation
+    @Test
+    @DisplayName("Junit Test for getEmployeeById tagging JSON and CBOR differently and varying by Accept")
+    public void givenJsonETag_whenGetEmployeeByIdAsCbor_thenReturnFullCborBody() throws Exception{
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeService.getEmployeeByID(employee.getEmployeeId())).willReturn(Optional.of(employee));
+
+        // when - action or the behaviour that we are going to test
+        ResultActions responseObject = mockMvc.perform(get("/api/employees/{id}", employee.getEmployeeId())
+                .accept(MediaType.APPLICATION_CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\""));
+
+        // then - verify the output, the JSON tag doesn't validate the CBOR bytes
+        responseObject.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"3-cbor\""))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+
+        mockMvc.perform(get("/api/employees/{id}", employee.getEmployeeId())
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3-cbor\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+        mockMvc.perform(get("/api/employees/{id}", employee.getEmployeeId()))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+    }
+
+    //Junit Test for PATCH with a matching If-Match version
+    @Test
+    @DisplayName("Junit Test for patchEmployee returning the next version ETag")
+    public void givenIfMatchVersion_whenPatchEmployee_thenReturnNoContentWithNewETag() throws Exception{
+
+        // given - preconditions or setup
+        EmployeePatch patch = EmployeePatch.builder().firstName("Coolio").build();
+        BDDMockito.given(employeeService.patchEmployee(eq(employee.getEmployeeId()), eq(3L), any(EmployeePatch.class)))
+                .willReturn(4L);
+
+        // when - action or the behaviour that we are going to test
+        ResultActions response = mockMvc.perform(patch("/api/employees/{id}", employee.getEmployeeId())
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(patch)));
+
+        // then - verify the output
+        response.andExpect(MockMvcResultMatchers.status().isNoContent())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"4\""));
+        BDDMockito.then(employeeService).should(Mockito.never()).getEmployeeByID(any());
+    }
+
+    //Junit Test for PATCH with an If-Match that is not a version tag
+    @Test
+    @DisplayName("Junit Test for patchEmployee rejecting a wildcard If-Match")
+    public void givenWildcardIfMatch_whenPatchEmployee_thenReturnBadRequest() throws Exception{
+
+        // when - action or the behaviour that we are going to test
+        ResultActions response = mockMvc.perform(patch("/api/employees/{id}", employee.getEmployeeId())
+                .header(HttpHeaders.IF_MATCH, "*")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"firstName\":\"Coolio\"}"));
+
+        // then - verify the output
+        response.andExpect(MockMvcResultMatchers.status().isBadRequest());
+        BDDMockito.then(employeeService).should(Mockito.never()).patchEmployee(any(), any(), any());
+    }
+
     //Junit Test for Invalid case of getEmployeeById REST API
     @Test
     @DisplayName("Junit Test for Invalid case of getEmployeeById REST API")
@@ -279,4 +651,79 @@ class EmployeeControllerTest {
         responseObject.andDo(MockMvcResultHandlers.print())
                 .andExpect(MockMvcResultMatchers.status().isOk());
     }
-}
\ No newline at end of file
+
+    //Junit Test for the bulk delete REST API
+    @Test
+    @DisplayName("Junit Test for deleteEmployees returning the number of deleted rows")
+    public void givenListOfIds_whenDeleteEmployees_thenReturnDeletedCount() throws Exception{
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeService.deleteEmployees(List.of(1L, 2L))).willReturn(2);
+
+        // when - action or the behaviour that we are going to test
+        ResultActions response = mockMvc.perform(post("/api/employees/delete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[1,2]"));
+
+        // then - verify the output
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string("2"));
+    }
+
+    //Junit Test for getAllEmployees negotiated to CBOR
+    @Test
+    @DisplayName("Junit Test for getAllEmployees encoded as CBOR when the client asks for it")
+    public void givenCborAccept_whenGetAllEmployees_thenReturnSmallerCborBody() throws Exception{
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeService.getAllEmloyees()).willReturn(new CursorPage<>(listOfEmployees, null, false));
+        byte[] jsonBody = mockMvc.perform(get("/api/employees/getAllEmployees"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // when - action or the behaviour that we are going to test
+        ResultActions response = mockMvc.perform(get("/api/employees/getAllEmployees")
+                .accept(MediaType.APPLICATION_CBOR));
+
+        // then - verify the output
+        byte[] cborBody = response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Employee[] employees = new CBORMapper().readValue(cborBody, Employee[].class);
+        assertEquals(listOfEmployees.size(), employees.length);
+        assertTrue(cborBody.length < jsonBody.length);
+    }
+
+    //Junit Test for createEmployee and getEmployeeById in Smile
+    @Test
+    @DisplayName("Junit Test for createEmployee reading Smile and getEmployeeById writing Smile")
+    public void givenSmileBody_whenCreateAndGetEmployee_thenRoundTripInSmile() throws Exception{
+
+        // given - preconditions or setup
+        MediaType smile = new MediaType("application", "x-jackson-smile");
+        SmileMapper smileMapper = new SmileMapper();
+        BDDMockito.given(employeeService.saveNewEmployee(any(Employee.class)))
+                .willAnswer(invocation -> invocation.getArgument(0));
+        BDDMockito.given(employeeService.getEmployeeByID(employee.getEmployeeId())).willReturn(Optional.of(employee));
+
+        // when - action or the behaviour that we are going to test
+        ResultActions created = mockMvc.perform(post("/api/employees/create")
+                .contentType(smile)
+                .accept(smile)
+                .content(smileMapper.writeValueAsBytes(employee)));
+        ResultActions fetched = mockMvc.perform(get("/api/employees/{id}", employee.getEmployeeId())
+                .accept(smile));
+
+        // then - verify the output, the binary read bypasses the JSON byte cache
+        byte[] createdBody = created.andExpect(MockMvcResultMatchers.status().isCreated())
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] fetchedBody = fetched.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(smile))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"3-smile\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(employee.getEmail(), smileMapper.readValue(createdBody, Employee.class).getEmail());
+        assertEquals(employee.getEmail(), smileMapper.readValue(fetchedBody, Employee.class).getEmail());
+        assertNull(employeeResponseCache.get(employee.getEmployeeId()));
+    }
+}
@@ -0,0 +1,337 @@
+package com.TestingTutorials.springboottesting.controllers;
+
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeePatch;
+import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+import com.TestingTutorials.springboottesting.Data.Repositories.ReactiveEmployeeRepository;
+import com.TestingTutorials.springboottesting.cache.EmployeeChangedEvent;
+import com.TestingTutorials.springboottesting.cache.ReactiveEmployeeChanges;
+import com.TestingTutorials.springboottesting.config.EmployeeProperties;
+import com.TestingTutorials.springboottesting.utils.CursorCodec;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class EmployeeHandlerTest {
+
+    /**
+     * The reactive routes are tested without a server or database, WebTestClient is bound straight to the
+     * router function and the R2DBC repository is mocked.
+     **/
+
+    private ReactiveEmployeeRepository employeeRepository;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private EmployeeProperties employeeProperties;
+
+    private WebTestClient webTestClient;
+
+    private Employee employee;
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository = Mockito.mock(ReactiveEmployeeRepository.class);
+        eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+        employeeProperties = new EmployeeProperties();
+        // Runs the write as it is, there is no database to hold a transaction
+        TransactionalOperator transactionalOperator = Mockito.mock(TransactionalOperator.class);
+        BDDMockito.given(transactionalOperator.transactional(any(Mono.class)))
+                .willAnswer(invocation -> invocation.getArgument(0));
+        ReactiveEmployeeChanges employeeChanges = new ReactiveEmployeeChanges(Mockito.mock(DatabaseClient.class),
+                transactionalOperator, eventPublisher, employeeProperties);
+        EmployeeHandler employeeHandler = new EmployeeHandler(employeeRepository, employeeChanges, employeeProperties);
+        webTestClient = WebTestClient.bindToRouterFunction(new EmployeeRouter().employeeRoutes(employeeHandler)).build();
+
+        employee = Employee.builder()
+                .employeeId(1L)
+                .firstName("Emmanuel")
+                .lastName("Iwu")
+                .email("iwuemmanuel64@gmail.com")
+                .version(0L)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Junit test for the reactive createEmployee route")
+    void givenEmployeeObject_whenCreateEmployee_thenReturnCreatedEmployee() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.insert(any(Employee.class))).willReturn(Mono.just(employee));
+
+        // when - action or the behaviour that we are going to test
+        WebTestClient.ResponseSpec response = webTestClient.post().uri("/api/employees/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee)
+                .exchange();
+
+        // then - verify the output
+        response.expectStatus().isCreated()
+                .expectBody().jsonPath("$.employeeId").isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Junit test for the reactive deleteEmployee route publishing a deleted event")
+    void givenEmployeeId_whenDeleteEmployee_thenDeletedEventPublished() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.deleteById(1L)).willReturn(Mono.just(1));
+
+        // when - action or the behaviour that we are going to test
+        WebTestClient.ResponseSpec response = webTestClient.delete().uri("/api/employees/{id}", 1L).exchange();
+
+        // then - verify the output
+        response.expectStatus().isOk();
+        ArgumentCaptor<EmployeeChangedEvent> event = ArgumentCaptor.forClass(EmployeeChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        Assertions.assertThat(event.getValue().getType()).isEqualTo(EmployeeChangedEvent.Type.DELETED);
+        Assertions.assertThat(event.getValue().getEmployeeIds()).containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("Junit test for the reactive createEmployee route with a taken email")
+    void givenTakenEmail_whenCreateEmployee_thenReturnConflict() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.insert(any(Employee.class))).willReturn(Mono.error(
+                new DataIntegrityViolationException("duplicate key value violates unique constraint \""
+                        + Employee.EMAIL_UNIQUE_CONSTRAINT + "\"")));
+
+        // when - action or the behaviour that we are going to test
+        WebTestClient.ResponseSpec response = webTestClient.post().uri("/api/employees/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee)
+                .exchange();
+
+        // then - verify the output
+        response.expectStatus().isEqualTo(409);
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    @DisplayName("Junit test for the reactive getAllEmployees route cut off at the row cap")
+    void givenMoreEmployeesThanMaxRows_whenGetAllEmployees_thenTruncatedWithNextLink() {
+
+        // given - preconditions or setup
+        employeeProperties.getList().setMaxRows(1);
+        Employee employee2 = Employee.builder().employeeId(2L).firstName("Tom").lastName("Cruise")
+                .email("cruise@gmail.com").version(0L).build();
+        BDDMockito.given(employeeRepository.findAll(eq(2), anyInt())).willReturn(Flux.just(employee, employee2));
+
+        // when - action or the behaviour that we are going to test
+        WebTestClient.ResponseSpec response = webTestClient.get().uri("/api/employees/getAllEmployees").exchange();
+
+        // then - verify the output
+        response.expectStatus().isOk()
+                .expectHeader().valueEquals(EmployeeController.TRUNCATED_HEADER, "true")
+                .expectHeader().valueEquals(HttpHeaders.LINK,
+                        "</api/employees/page?cursor=" + CursorCodec.encode(1L) + ">; rel=\"next\"")
+                .expectBody().jsonPath("$.length()").isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Junit test for the reactive export route streaming one document per row")
+    void givenEmployees_whenExportEmployees_thenStreamNdjson() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.streamAll(anyInt())).willReturn(Flux.just(employee, employee));
+
+        // when - action or the behaviour that we are going to test
+        WebTestClient.ResponseSpec response = webTestClient.get().uri("/api/employees/export").exchange();
+
+        // then - verify the output
+        response.expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Employee.class).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Junit test for the reactive getEmployeeById route with an unknown id")
+    void givenUnknownId_whenGetEmployeeById_thenReturnNotFound() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.findById(2L)).willReturn(Mono.empty());
+
+        // when - action or the behaviour that we are going to test
+        WebTestClient.ResponseSpec response = webTestClient.get().uri("/api/employees/{id}", 2L).exchange();
+
+        // then - verify the output
+        response.expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Junit test for the reactive updateEmployee route checking the version it read")
+    void givenCurrentVersion_whenUpdateEmployee_thenUpdatedAgainstReadVersion() {
+
+        // given - preconditions or setup
+        Employee updatedEmployee = Employee.builder().employeeId(1L).firstName("Clark").lastName("Iwu")
+                .email("iwuemmanuel64@gmail.com").version(1L).build();
+        BDDMockito.given(employeeRepository.findById(1L)).willReturn(Mono.just(employee));
+        BDDMockito.given(employeeRepository.update(eq(1L), eq(0L), any(Employee.class))).willReturn(Mono.just(updatedEmployee));
+
+        // when - action or the behaviour that we are going to test
+        WebTestClient.ResponseSpec response = webTestClient.put().uri("/api/employees/{id}", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(updatedEmployee)
+                .exchange();
+
+        // then - verify the output
+        response.expectStatus().isOk()
+                .expectBody().jsonPath("$.version").isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Junit test for the reactive updateEmployee route losing to a concurrent write")
+    void givenConcurrentChange_whenUpdateEmployee_thenReturnConflict() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.findById(1L)).willReturn(Mono.just(employee));
+        BDDMockito.given(employeeRepository.update(eq(1L), eq(0L), any(Employee.class))).willReturn(Mono.empty());
+
+        // when - action or the behaviour that we are going to test
+        WebTestClient.ResponseSpec response = webTestClient.put().uri("/api/employees/{id}", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee)
+                .exchange();
+
+        // then - verify the output
+        response.expectStatus().isEqualTo(409);
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    @DisplayName("Junit test for the reactive page route fetching one row beyond the page for hasNext")
+    void givenMoreRowsThanPageSize_whenGetEmployeesPage_thenReturnPageWithCursor() {
+
+        // given - preconditions or setup
+        Employee employee2 = Employee.builder().employeeId(2L).firstName("Sean").lastName("Kingston")
+                .email("kingston@gmail.com").version(0L).build();
+        BDDMockito.given(employeeRepository.findAfter(0L, 2)).willReturn(Flux.just(employee, employee2));
+
+        // when - action or the behaviour that we are going to test
+        WebTestClient.ResponseSpec response = webTestClient.get().uri("/api/employees/page?size=1").exchange();
+
+        // then - verify the output
+        response.expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content.length()").isEqualTo(1)
+                .jsonPath("$.hasNext").isEqualTo(true)
+                .jsonPath("$.nextCursor").isEqualTo(CursorCodec.encode(1L));
+    }
+
+    @Test
+    @DisplayName("Junit test for the reactive ids lookup keeping the requested order and listing unknown ids")
+    void givenKnownAndUnknownIds_whenGetEmployeesByIds_thenReturnFoundAndMissing() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.findAllById(any())).willReturn(Flux.just(employee));
+
+        // when - action or the behaviour that we are going to test
+        WebTestClient.ResponseSpec response = webTestClient.get().uri("/api/employees?ids=5,1").exchange();
+
+        // then - verify the output
+        response.expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.employees[0].employeeId").isEqualTo(1)
+                .jsonPath("$.missingIds[0]").isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Junit test for the reactive patch route returning the new version as ETag")
+    void givenCurrentVersion_whenPatchEmployee_thenReturnNoContentWithNewETag() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.patch(eq(1L), eq(0L), any(EmployeePatch.class))).willReturn(Mono.just(1));
+
+        // when - action or the behaviour that we are going to test
+        WebTestClient.ResponseSpec response = webTestClient.patch().uri("/api/employees/{id}", 1L)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(EmployeePatch.builder().firstName("Clark").build())
+                .exchange();
+
+        // then - verify the output
+        response.expectStatus().isNoContent()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"");
+        verify(eventPublisher).publishEvent(any(EmployeeChangedEvent.class));
+    }
+
+    @Test
+    @DisplayName("Junit test for the reactive patch route with a stale version")
+    void givenStaleVersion_whenPatchEmployee_thenReturnPreconditionFailed() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.patch(eq(1L), eq(0L), any(EmployeePatch.class))).willReturn(Mono.just(0));
+        BDDMockito.given(employeeRepository.existsById(1L)).willReturn(Mono.just(true));
+
+        // when - action or the behaviour that we are going to test
+        WebTestClient.ResponseSpec response = webTestClient.patch().uri("/api/employees/{id}", 1L)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(EmployeePatch.builder().firstName("Clark").build())
+                .exchange();
+
+        // then - verify the output
+        response.expectStatus().isEqualTo(412);
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    @DisplayName("Junit test for the reactive batch route refusing emails that are already taken")
+    void givenTakenEmailInBatch_whenCreateEmployees_thenReturnConflict() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.findExistingEmails(any())).willReturn(Flux.just(employee.getEmail()));
+
+        // when - action or the behaviour that we are going to test
+        WebTestClient.ResponseSpec response = webTestClient.post().uri("/api/employees/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(employee))
+                .exchange();
+
+        // then - verify the output
+        response.expectStatus().isEqualTo(409);
+        verify(employeeRepository, never()).insert(any(Employee.class));
+    }
+
+    @Test
+    @DisplayName("Junit test for the reactive bulk delete route returning the deleted count")
+    void givenEmployeeIds_whenDeleteEmployees_thenReturnDeletedCount() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.deleteByIds(any())).willReturn(Mono.just(2));
+
+        // when - action or the behaviour that we are going to test
+        WebTestClient.ResponseSpec response = webTestClient.post().uri("/api/employees/delete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(1L, 2L, 2L))
+                .exchange();
+
+        // then - verify the output
+        response.expectStatus().isOk()
+                .expectBody(Integer.class).isEqualTo(2);
+        ArgumentCaptor<EmployeeChangedEvent> event = ArgumentCaptor.forClass(EmployeeChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        Assertions.assertThat(event.getValue().getEmployeeIds()).containsExactly(1L, 2L);
+    }
+}
@@ -0,0 +1,218 @@
+package com.TestingTutorials.springboottesting.services.ServiceImpl;
+
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeeLookup;
+import com.TestingTutorials.springboottesting.Data.Entities.Employee;
+import com.TestingTutorials.springboottesting.Data.Repositories.EmployeeRepository;
+import com.TestingTutorials.springboottesting.cache.EmailBloomFilter;
+import com.TestingTutorials.springboottesting.cache.EmployeeCacheInvalidator;
+import com.TestingTutorials.springboottesting.cache.EmployeeChangedEvent;
+import com.TestingTutorials.springboottesting.cache.EmployeeListSnapshot;
+import com.TestingTutorials.springboottesting.config.CacheConfig;
+import com.TestingTutorials.springboottesting.config.EmployeeProperties;
+import com.TestingTutorials.springboottesting.services.EmployeeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * The cache annotations and the change events only work inside spring, so unlike EmployeeServiceImplTest
+ * the service here is a bean in a small application context with just the cache setup and a mocked repository.
+ **/
+@SpringJUnitConfig
+class EmployeeServiceImplCachingTest {
+
+    @Configuration
+    @Import(CacheConfig.class)
+    static class CachingTestConfig {
+
+        @Bean
+        EmployeeRepository employeeRepository() {
+            return Mockito.mock(EmployeeRepository.class);
+        }
+
+        @Bean
+        CacheManager cacheManager() {
+            return new CaffeineCacheManager(CacheConfig.EMPLOYEES_CACHE);
+        }
+
+        @Bean
+        EmployeeCacheInvalidator employeeCacheInvalidator(CacheManager cacheManager) {
+            return new EmployeeCacheInvalidator(cacheManager);
+        }
+
+        @Bean
+        EmployeeService employeeService(EmployeeRepository employeeRepository, ApplicationEventPublisher eventPublisher,
+                                        CacheManager cacheManager, EmployeeCacheInvalidator employeeCacheInvalidator) {
+            EmployeeProperties employeeProperties = new EmployeeProperties();
+            return new EmployeeServiceImpl(employeeRepository, employeeProperties,
+                    new EmailBloomFilter(employeeRepository, employeeProperties, new SimpleMeterRegistry()), eventPublisher,
+                    cacheManager, employeeCacheInvalidator, new EmployeeListSnapshot(employeeRepository, new ObjectMapper(),
+                    Mockito.mock(PlatformTransactionManager.class), employeeProperties, new SimpleMeterRegistry()), new SimpleMeterRegistry());
+        }
+    }
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EmployeeCacheInvalidator employeeCacheInvalidator;
+
+    private Employee employee1;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.reset(employeeRepository);
+        cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE).clear();
+
+        employee1 = Employee.builder()
+                .employeeId(1L)
+                .firstName("Emmanuel")
+                .lastName("Iwu")
+                .email("starcy008@gmail.com")
+                .build();
+    }
+
+    @Test
+    @DisplayName("Junit test for getEmployeeByID served from the cache after the first read")
+    void givenCachedEmployee_whenGetEmployeeByIdTwice_thenRepositoryHitOnce() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.findById(1L)).willReturn(Optional.of(employee1));
+
+        // when - action or the behaviour that we are going to test
+        employeeService.getEmployeeByID(1L);
+        Optional<Employee> cachedEmployee = employeeService.getEmployeeByID(1L);
+
+        // then - verify the output
+        Assertions.assertThat(cachedEmployee).contains(employee1);
+        verify(employeeRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Junit test for missing employees not being cached")
+    void givenMissingEmployee_whenGetEmployeeByIdTwice_thenRepositoryHitEachTime() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.findById(1L)).willReturn(Optional.empty());
+
+        // when - action or the behaviour that we are going to test
+        employeeService.getEmployeeByID(1L);
+        employeeService.getEmployeeByID(1L);
+
+        // then - verify the output
+        verify(employeeRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Junit test for a row read before an eviction not being put back into the cache")
+    void givenEvictionDuringRead_whenGetEmployeeById_thenNotCached() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.findById(1L)).willAnswer(invocation -> {
+            // Another request's write commits while this one is still reading the old row
+            employeeCacheInvalidator.onEmployeeChanged(EmployeeChangedEvent.saved(List.of(1L)));
+            return Optional.of(employee1);
+        });
+
+        // when - action or the behaviour that we are going to test
+        Optional<Employee> employee = employeeService.getEmployeeByID(1L);
+
+        // then - verify the output
+        Assertions.assertThat(employee).contains(employee1);
+        Assertions.assertThat(cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE).get(1L)).isNull();
+    }
+
+    @Test
+    @DisplayName("Junit test for UpdateEmployee evicting the cached entry")
+    void givenCachedEmployee_whenUpdateEmployee_thenNextReadSeesUpdate() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.findById(1L)).willReturn(Optional.of(employee1));
+        employeeService.getEmployeeByID(1L);
+
+        Employee updatedEmployee = Employee.builder()
+                .employeeId(1L)
+                .firstName("Clark")
+                .lastName("Iwu")
+                .email("newCool@gmail.com")
+                .build();
+        BDDMockito.given(employeeRepository.saveAndFlush(updatedEmployee)).willReturn(updatedEmployee);
+
+        // when - action or the behaviour that we are going to test
+        employeeService.UpdateEmployee(updatedEmployee);
+        BDDMockito.given(employeeRepository.findById(1L)).willReturn(Optional.of(updatedEmployee));
+
+        // then - verify the output
+        Assertions.assertThat(employeeService.getEmployeeByID(1L)).contains(updatedEmployee);
+        verify(employeeRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Junit test for deleteEmployee evicting the cached entry")
+    void givenCachedEmployee_whenDeleteEmployee_thenNextReadGoesToRepository() {
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.findById(1L)).willReturn(Optional.of(employee1));
+        employeeService.getEmployeeByID(1L);
+
+        // when - action or the behaviour that we are going to test
+        employeeService.deleteEmployee(1L);
+        employeeService.getEmployeeByID(1L);
+
+        // then - verify the output
+        verify(employeeRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Junit test for getEmployeesByIds querying the database only for cache misses")
+    void givenPartlyCachedIds_whenGetEmployeesByIds_thenFetchMissesOnceInRequestedOrder() {
+
+        // given - preconditions or setup
+        Employee employee2 = Employee.builder()
+                .employeeId(2L)
+                .firstName("Tom")
+                .lastName("Cruise")
+                .email("cruise@gmail.com")
+                .build();
+        BDDMockito.given(employeeRepository.findById(1L)).willReturn(Optional.of(employee1));
+        BDDMockito.given(employeeRepository.findAllById(List.of(2L, 3L))).willReturn(List.of(employee2));
+        employeeService.getEmployeeByID(1L);
+
+        // when - action or the behaviour that we are going to test
+        EmployeeLookup lookup = employeeService.getEmployeesByIds(List.of(2L, 1L, 3L));
+
+        // then - verify the output
+        Assertions.assertThat(lookup.getEmployees()).containsExactly(employee2, employee1);
+        Assertions.assertThat(lookup.getMissingIds()).containsExactly(3L);
+        verify(employeeRepository, times(1)).findAllById(List.of(2L, 3L));
+
+        // and the fetched employee now serves single reads from the cache
+        Assertions.assertThat(employeeService.getEmployeeByID(2L)).contains(employee2);
+        verify(employeeRepository, never()).findById(2L);
+    }
+}
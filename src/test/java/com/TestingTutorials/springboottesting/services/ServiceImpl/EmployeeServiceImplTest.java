@@ -1,10 +1,25 @@
 package com.TestingTutorials.springboottesting.services.ServiceImpl;
 
+import com.TestingTutorials.springboottesting.Data.Dtos.CursorPage;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeePatch;
+import com.TestingTutorials.springboottesting.Data.Dtos.EmployeeSummary;
 import com.TestingTutorials.springboottesting.Data.Entities.Employee;
 import com.TestingTutorials.springboottesting.Data.Repositories.EmployeeRepository;
+import com.TestingTutorials.springboottesting.cache.EmailBloomFilter;
+import com.TestingTutorials.springboottesting.cache.EmployeeCacheInvalidator;
+import com.TestingTutorials.springboottesting.cache.EmployeeChangedEvent;
+import com.TestingTutorials.springboottesting.cache.EmployeeListSnapshot;
+import com.TestingTutorials.springboottesting.config.CacheConfig;
+import com.TestingTutorials.springboottesting.config.EmployeeProperties;
+import com.TestingTutorials.springboottesting.exceptions.BadRequestException;
+import com.TestingTutorials.springboottesting.exceptions.EmployeeAlreadyExistsException;
+import com.TestingTutorials.springboottesting.exceptions.PreconditionFailedException;
 import com.TestingTutorials.springboottesting.exceptions.ResourceNotFoundException;
 import com.TestingTutorials.springboottesting.services.EmployeeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -16,12 +31,29 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
-
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 
@@ -47,6 +79,12 @@ class EmployeeServiceImplTest {
 
     private EmployeeService employeeService;
 
+    private EmailBloomFilter emailBloomFilter;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private EmployeeListSnapshot listSnapshot;
+
     private Employee employee1;
 
 
@@ -60,7 +98,14 @@ class EmployeeServiceImplTest {
     @BeforeEach
     void setUp() {
         employeeRepository = Mockito.mock(EmployeeRepository.class);
-        employeeService = new EmployeeServiceImpl(employeeRepository);
+        EmployeeProperties employeeProperties = new EmployeeProperties();
+        emailBloomFilter = new EmailBloomFilter(employeeRepository, employeeProperties, new SimpleMeterRegistry());
+        eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+        listSnapshot = new EmployeeListSnapshot(employeeRepository, new ObjectMapper(),
+                Mockito.mock(PlatformTransactionManager.class), employeeProperties, new SimpleMeterRegistry());
+        CacheManager cacheManager = new ConcurrentMapCacheManager(CacheConfig.EMPLOYEES_CACHE);
+        employeeService = new EmployeeServiceImpl(employeeRepository, employeeProperties, emailBloomFilter, eventPublisher,
+                cacheManager, new EmployeeCacheInvalidator(cacheManager), listSnapshot, new SimpleMeterRegistry());
 
         employee1 = Employee.builder()
                 .employeeId(1L)
@@ -78,15 +123,34 @@ class EmployeeServiceImplTest {
 
 //        testEntityManager.persistAndFlush(employee1);
 
-        BDDMockito.given(employeeRepository.findByEmail(employee1.getEmail())).willReturn(Optional.empty());
-
-        BDDMockito.given(employeeRepository.save(employee1)).willReturn(employee1);
+        Employee persisted = Employee.builder().employeeId(1L).firstName("Emmanuel").lastName("Iwu")
+                .email("starcy008@gmail.com").version(0L).build();
+        BDDMockito.given(employeeRepository.saveAndFlush(employee1)).willReturn(persisted);
 
         //When
         Employee savedEmployee = employeeService.saveNewEmployee(employee1);
 
         //Then
         Assertions.assertThat(savedEmployee).isNotNull();
+        verify(employeeRepository, never()).findByEmail(any());
+    }
+
+    @Test
+    @DisplayName("Junit test case for save employee method ignoring a client supplied id and version")
+    void givenEmployeeWithIdAndVersion_whenSaveNewEmployee_thenInsertedAsNewRow() {
+
+        // given - preconditions or setup
+        employee1.setVersion(3L);
+        Employee persisted = Employee.builder().employeeId(51L).firstName("Emmanuel").lastName("Iwu")
+                .email("starcy008@gmail.com").version(0L).build();
+        BDDMockito.given(employeeRepository.saveAndFlush(employee1)).willReturn(persisted);
+
+        // when - action or the behaviour that we are going to test
+        employeeService.saveNewEmployee(employee1);
+
+        // then - verify the output
+        verify(employeeRepository).saveAndFlush(argThat(employee ->
+                employee.getEmployeeId() == null && employee.getVersion() == null));
     }
 
     @Test
@@ -97,15 +161,16 @@ class EmployeeServiceImplTest {
 
 //      testEntityManager.persistAndFlush(employee1);
 
-        BDDMockito.given(employeeRepository.findByEmail(employee1.getEmail())).willReturn(Optional.of(employee1));
+        BDDMockito.given(employeeRepository.saveAndFlush(employee1)).willThrow(emailConflict());
 
-        ResourceNotFoundException thrown = assertThrows(ResourceNotFoundException.class, () -> {
+        EmployeeAlreadyExistsException thrown = assertThrows(EmployeeAlreadyExistsException.class, () -> {
             employeeService.saveNewEmployee(employee1);
         });
 
         //Then
-        verify(employeeRepository, never()).save(any(Employee.class));
+        verify(employeeRepository, never()).findByEmail(any());
         assertEquals("Employee already exists with given email: " + employee1.getEmail(), thrown.getMessage());
+        assertEquals(0, thrown.getStackTrace().length);
     }
 
     //Junit Test for getAllEmployees method
@@ -127,18 +192,41 @@ class EmployeeServiceImplTest {
                 .email("kingston@gmail.com")
                 .build();
 
-        BDDMockito.given(employeeRepository.findAll()).willReturn(List.of(employee1, employee2, employee3));
+        BDDMockito.given(employeeRepository.findByEmployeeIdGreaterThan(eq(0L), any(Pageable.class)))
+                .willReturn(new SliceImpl<>(List.of(employee1, employee2, employee3)));
 
         // when - action or the behaviour that we are going to test
 
-        List<Employee> expectedList = employeeService.getAllEmloyees();
+        CursorPage<Employee> expectedList = employeeService.getAllEmloyees();
 
         // then - verify the output
         Assertions.assertThat(expectedList).isNotNull();
-        Assertions.assertThat(expectedList.size()).isEqualTo(3);
+        Assertions.assertThat(expectedList.getContent().size()).isEqualTo(3);
+        Assertions.assertThat(expectedList.isHasNext()).isFalse();
 
     }
 
+    //Junit Test for getAllEmployees operation cut off at the row cap
+    @Test
+    public void givenMoreRowsThanMaxRows_whenGetAllEmployees_thenReturnCursorToContinue(){
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.findByEmployeeIdGreaterThan(eq(0L), any(Pageable.class)))
+                .willReturn(new SliceImpl<>(List.of(employee1), PageRequest.of(0, 1), true));
+        BDDMockito.given(employeeRepository.findByEmployeeIdGreaterThan(eq(employee1.getEmployeeId()), any(Pageable.class)))
+                .willReturn(new SliceImpl<>(List.of()));
+
+        // when - action or the behaviour that we are going to test
+        CursorPage<Employee> list = employeeService.getAllEmloyees();
+
+        // then - verify the output
+        Assertions.assertThat(list.isHasNext()).isTrue();
+
+        // the cursor continues on the keyset pages right after the last row of the list
+        employeeService.getEmployeesPage(list.getNextCursor(), 10);
+        verify(employeeRepository).findByEmployeeIdGreaterThan(eq(employee1.getEmployeeId()), any(Pageable.class));
+    }
+
     //Junit Test for getEmployeeById Operation
     @Test
     public void givenValidEmployeeId_whenGetEmployeeById_thenReturnEmployee(){
@@ -183,7 +271,7 @@ class EmployeeServiceImplTest {
 
         // given - preconditions or setup
 
-        BDDMockito.given(employeeRepository.save(employee1)).willReturn(employee1);
+        BDDMockito.given(employeeRepository.saveAndFlush(employee1)).willReturn(employee1);
 
         //update Employee Object
         employee1.setEmail("newCool@gmail.com");
@@ -197,6 +285,7 @@ class EmployeeServiceImplTest {
 
         assertEquals("newCool@gmail.com", updatedEmployee.getEmail());
         assertEquals("Clark", updatedEmployee.getFirstName());
+        verify(eventPublisher).publishEvent(any(EmployeeChangedEvent.class));
 
     }
 
@@ -220,4 +309,294 @@ class EmployeeServiceImplTest {
         verify(employeeRepository, times(1)).deleteById(employee1.getEmployeeId());
 
     }
-}
\ No newline at end of file
+
+    //Junit Test for getEmployeesPage operation when more rows follow
+    @Test
+    public void givenMoreRowsThanPageSize_whenGetEmployeesPage_thenReturnNextCursor(){
+
+        // given - preconditions or setup
+        Employee employee2 = Employee.builder()
+                .employeeId(2L)
+                .firstName("Tom")
+                .lastName("Cruise")
+                .email("cruise@gmail.com")
+                .build();
+
+        BDDMockito.given(employeeRepository.findByEmployeeIdGreaterThan(eq(0L), any(Pageable.class)))
+                .willReturn(new SliceImpl<>(List.of(employee1, employee2), PageRequest.of(0, 2), true));
+        BDDMockito.given(employeeRepository.findByEmployeeIdGreaterThan(eq(2L), any(Pageable.class)))
+                .willReturn(new SliceImpl<>(List.of()));
+
+        // when - action or the behaviour that we are going to test
+        CursorPage<Employee> page = employeeService.getEmployeesPage(null, 2);
+
+        // then - verify the output
+        Assertions.assertThat(page.getContent().size()).isEqualTo(2);
+        Assertions.assertThat(page.isHasNext()).isTrue();
+        Assertions.assertThat(page.getNextCursor()).isNotNull();
+
+        // the cursor must seek past the last row of this page
+        employeeService.getEmployeesPage(page.getNextCursor(), 2);
+        verify(employeeRepository).findByEmployeeIdGreaterThan(eq(2L), any(Pageable.class));
+    }
+
+    //Junit Test for getEmployeeSummariesPage served from the projection query
+    @Test
+    public void givenSummaries_whenGetEmployeeSummariesPage_thenNoEntitiesLoaded(){
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.findSummariesAfter(eq(0L), any(Pageable.class)))
+                .willReturn(new SliceImpl<>(List.of(new EmployeeSummary(1L, "Emmanuel Iwu")), PageRequest.of(0, 1), true));
+
+        // when - action or the behaviour that we are going to test
+        CursorPage<EmployeeSummary> page = employeeService.getEmployeeSummariesPage(null, 1);
+
+        // then - verify the output
+        Assertions.assertThat(page.getContent()).extracting(EmployeeSummary::getDisplayName).containsExactly("Emmanuel Iwu");
+        Assertions.assertThat(page.getNextCursor()).isNotNull();
+        verify(employeeRepository, never()).findByEmployeeIdGreaterThan(anyLong(), any(Pageable.class));
+    }
+
+    //Junit Test for getEmployeeFieldsPage selecting only the requested columns
+    @Test
+    public void givenFields_whenGetEmployeeFieldsPage_thenSelectIdPlusFieldsAndPageByOneExtraRow(){
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.findFieldsAfter(List.of("employeeId", "email"), 0L, 2))
+                .willReturn(List.of(Map.of("employeeId", 1L, "email", "a@gmail.com"),
+                        Map.of("employeeId", 2L, "email", "b@gmail.com")));
+
+        // when - action or the behaviour that we are going to test
+        CursorPage<Map<String, Object>> page = employeeService.getEmployeeFieldsPage(null, 1, " email ");
+
+        // then - verify the output
+        Assertions.assertThat(page.getContent()).hasSize(1);
+        Assertions.assertThat(page.isHasNext()).isTrue();
+        Assertions.assertThat(page.getNextCursor()).isNotNull();
+    }
+
+    //Junit Test for getEmployeeFieldsByID with a field that does not exist
+    @Test
+    public void givenUnknownField_whenGetEmployeeFieldsByID_thenThrowsException(){
+
+        assertThrows(BadRequestException.class, () -> employeeService.getEmployeeFieldsByID(1L, "email,salary"));
+
+        verify(employeeRepository, never()).findFieldsById(any(), any());
+    }
+
+    //Junit Test for getEmployeesPage page size bound
+    @Test
+    public void givenOversizedPageSize_whenGetEmployeesPage_thenClampToMaxSize(){
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.findByEmployeeIdGreaterThan(anyLong(), any(Pageable.class)))
+                .willReturn(new SliceImpl<>(List.of()));
+
+        // when - action or the behaviour that we are going to test
+        CursorPage<Employee> page = employeeService.getEmployeesPage(null, 1_000_000);
+
+        // then - verify the output
+        Assertions.assertThat(page.isHasNext()).isFalse();
+        Assertions.assertThat(page.getNextCursor()).isNull();
+        verify(employeeRepository).findByEmployeeIdGreaterThan(eq(0L),
+                eq(PageRequest.of(0, new EmployeeProperties().getPage().getMaxSize(), Sort.by("employeeId"))));
+    }
+
+    //Junit Test for getEmployeesPage with a tampered cursor
+    @Test
+    public void givenInvalidCursor_whenGetEmployeesPage_thenThrowsException(){
+
+        assertThrows(BadRequestException.class, () -> employeeService.getEmployeesPage("not-a-cursor", 10));
+
+        verify(employeeRepository, never()).findByEmployeeIdGreaterThan(anyLong(), any(Pageable.class));
+    }
+
+    //Junit Test for streamAllEmployees operation
+    @Test
+    public void givenEmployees_whenStreamAllEmployees_thenEveryRowReachesTheConsumer(){
+
+        // given - preconditions or setup
+        int fetchSize = new EmployeeProperties().getExport().getFetchSize();
+
+        BDDMockito.given(employeeRepository.streamAll(fetchSize)).willReturn(Stream.of(employee1));
+
+        // when - action or the behaviour that we are going to test
+        List<Employee> streamed = new ArrayList<>();
+        employeeService.streamAllEmployees(streamed::add);
+
+        // then - verify the output
+        Assertions.assertThat(streamed).containsExactly(employee1);
+        verify(employeeRepository, never()).findAll();
+    }
+
+    //Junit Test for saveNewEmployees batch operation
+    @Test
+    public void givenNewEmails_whenSaveNewEmployees_thenCheckEmailsOnceAndSaveAll(){
+
+        // given - preconditions or setup
+        Employee employee2 = Employee.builder()
+                .firstName("Tom")
+                .lastName("Cruise")
+                .email("cruise@gmail.com")
+                .build();
+        List<Employee> batch = List.of(employee1, employee2);
+
+        BDDMockito.given(employeeRepository.findExistingEmails(any())).willReturn(List.of());
+        BDDMockito.given(employeeRepository.saveAll(batch)).willAnswer(invocation -> assignIds(batch));
+
+        // when - action or the behaviour that we are going to test
+        List<Employee> savedEmployees = employeeService.saveNewEmployees(batch);
+
+        // then - verify the output
+        Assertions.assertThat(savedEmployees.size()).isEqualTo(2);
+        verify(employeeRepository, times(1)).findExistingEmails(any());
+        verify(employeeRepository, never()).findByEmail(any());
+    }
+
+    //Junit Test for saveNewEmployees batch operation with an existing email
+    @Test
+    public void givenExistingEmailInBatch_whenSaveNewEmployees_thenThrowsException(){
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.findExistingEmails(any())).willReturn(List.of(employee1.getEmail()));
+
+        // when - action or the behaviour that we are going to test
+        assertThrows(EmployeeAlreadyExistsException.class, () -> employeeService.saveNewEmployees(List.of(employee1)));
+
+        // then - verify the output
+        verify(employeeRepository, never()).saveAll(any());
+    }
+
+    //Junit Test for updateEmployee when the new email is taken by another employee
+    @Test
+    public void givenTakenEmail_whenUpdateEmployee_thenThrowsException(){
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.saveAndFlush(employee1)).willThrow(emailConflict());
+
+        // when - action or the behaviour that we are going to test
+        assertThrows(EmployeeAlreadyExistsException.class, () -> employeeService.UpdateEmployee(employee1));
+    }
+
+    //Junit Test for saveNewEmployees skipping the email query when the Bloom filter rules every email out
+    @Test
+    public void givenUnseenEmails_whenSaveNewEmployees_thenSkipExistingEmailQuery(){
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.streamAllEmails()).willReturn(Stream.of("cruise@gmail.com"));
+        emailBloomFilter.load();
+
+        List<Employee> batch = List.of(employee1);
+        BDDMockito.given(employeeRepository.saveAll(batch)).willAnswer(invocation -> assignIds(batch));
+
+        // when - action or the behaviour that we are going to test
+        employeeService.saveNewEmployees(batch);
+
+        // then - verify the output
+        verify(employeeRepository, never()).findExistingEmails(any());
+        Assertions.assertThat(emailBloomFilter.mightContain(employee1.getEmail())).isTrue();
+    }
+
+    //Junit Test for patchEmployee issuing one conditional update
+    @Test
+    public void givenCurrentVersion_whenPatchEmployee_thenReturnNextVersion(){
+
+        // given - preconditions or setup
+        EmployeePatch patch = EmployeePatch.builder().firstName("Coolio").build();
+        BDDMockito.given(employeeRepository.patch(1L, 4L, patch)).willReturn(1);
+
+        // when - action or the behaviour that we are going to test
+        long version = employeeService.patchEmployee(1L, 4L, patch);
+
+        // then - verify the output
+        Assertions.assertThat(version).isEqualTo(5L);
+        verify(employeeRepository, never()).findById(any());
+        verify(employeeRepository, never()).existsById(any());
+        verify(eventPublisher).publishEvent(any(EmployeeChangedEvent.class));
+    }
+
+    //Junit Test for patchEmployee with a version someone else already moved past
+    @Test
+    public void givenStaleVersion_whenPatchEmployee_thenThrowsPreconditionFailed(){
+
+        // given - preconditions or setup
+        EmployeePatch patch = EmployeePatch.builder().firstName("Coolio").build();
+        BDDMockito.given(employeeRepository.patch(1L, 4L, patch)).willReturn(0);
+        BDDMockito.given(employeeRepository.existsById(1L)).willReturn(true);
+
+        // when - action or the behaviour that we are going to test
+        assertThrows(PreconditionFailedException.class, () -> employeeService.patchEmployee(1L, 4L, patch));
+
+        // then - verify the output
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    //Junit Test for patchEmployee on an id that does not exist
+    @Test
+    public void givenMissingEmployee_whenPatchEmployee_thenThrowsResourceNotFound(){
+
+        // given - preconditions or setup
+        EmployeePatch patch = EmployeePatch.builder().email("new@gmail.com").build();
+        BDDMockito.given(employeeRepository.patch(1L, 4L, patch)).willReturn(0);
+        BDDMockito.given(employeeRepository.existsById(1L)).willReturn(false);
+
+        // when - action or the behaviour that we are going to test
+        assertThrows(ResourceNotFoundException.class, () -> employeeService.patchEmployee(1L, 4L, patch));
+    }
+
+    //Junit Test for deleteEmployees issuing a single bulk delete
+    @Test
+    public void givenListOfIds_whenDeleteEmployees_thenDeleteOnceWithoutLoading(){
+
+        // given - preconditions or setup
+        BDDMockito.given(employeeRepository.deleteByEmployeeIds(any())).willReturn(2);
+
+        // when - action or the behaviour that we are going to test
+        int deleted = employeeService.deleteEmployees(Arrays.asList(1L, 2L, 2L, null));
+
+        // then - verify the output
+        Assertions.assertThat(deleted).isEqualTo(2);
+        verify(employeeRepository).deleteByEmployeeIds(Set.of(1L, 2L));
+        verify(employeeRepository, never()).findById(any());
+        verify(employeeRepository, never()).deleteById(any());
+        verify(eventPublisher).publishEvent(any(EmployeeChangedEvent.class));
+    }
+
+    //Junit Test for getEmployeeByID going through the read batch loader when it is switched on
+    @Test
+    public void givenReadBatchingEnabled_whenGetEmployeeById_thenLoadThroughFindAllById(){
+
+        // given - preconditions or setup
+        EmployeeProperties employeeProperties = new EmployeeProperties();
+        employeeProperties.getReadBatch().setEnabled(true);
+        employeeProperties.getReadBatch().setMaxSize(1);
+        CacheManager cacheManager = new ConcurrentMapCacheManager(CacheConfig.EMPLOYEES_CACHE);
+        EmployeeService batchingService = new EmployeeServiceImpl(employeeRepository, employeeProperties, emailBloomFilter,
+                eventPublisher, cacheManager, new EmployeeCacheInvalidator(cacheManager), listSnapshot,
+                new SimpleMeterRegistry());
+
+        BDDMockito.given(employeeRepository.findAllById(List.of(employee1.getEmployeeId()))).willReturn(List.of(employee1));
+
+        // when - action or the behaviour that we are going to test
+        Optional<Employee> employee = batchingService.getEmployeeByID(employee1.getEmployeeId());
+
+        // then - verify the output
+        Assertions.assertThat(employee).contains(employee1);
+        verify(employeeRepository, never()).findById(any());
+    }
+
+    // What spring translates a violation of the unique email index into
+    private DataIntegrityViolationException emailConflict() {
+        return new DataIntegrityViolationException("duplicate key",
+                new ConstraintViolationException("duplicate key", new SQLException(), Employee.EMAIL_UNIQUE_CONSTRAINT));
+    }
+
+    // Stands in for the ids the database would hand out on saveAll
+    private List<Employee> assignIds(List<Employee> employees) {
+        long nextId = 100L;
+        for (Employee employee : employees) {
+            employee.setEmployeeId(nextId++);
+        }
+        return employees;
+    }
+}